@@ -0,0 +1,43 @@
+package com.medimate.config;
+
+import com.medimate.exception.UnauthorizedException;
+import com.medimate.model.AuthPrincipal;
+import com.medimate.service.PrincipalService;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+// Supplies an AuthPrincipal parameter from the X-Auth-Token header, resolving it at most once per
+// request. A missing or invalid token ends the request with 401.
+@Component
+public class AuthPrincipalResolver implements HandlerMethodArgumentResolver {
+    public static final String HEADER = "X-Auth-Token";
+    private static final String ATTRIBUTE = AuthPrincipal.class.getName();
+
+    private final PrincipalService principalService;
+
+    public AuthPrincipalResolver(PrincipalService principalService) {
+        this.principalService = principalService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object cached = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null) return cached;
+        String token = webRequest.getHeader(HEADER);
+        AuthPrincipal principal = token == null ? null : principalService.resolve(token);
+        if (principal == null) throw new UnauthorizedException();
+        webRequest.setAttribute(ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+        return principal;
+    }
+}
@@ -0,0 +1,68 @@
+package com.medimate.config;
+
+import com.medimate.model.AdherenceDailyRollup;
+import com.medimate.model.AuthToken;
+import com.medimate.model.ConversationSummary;
+import com.medimate.model.DoseEvent;
+import com.medimate.model.Medication;
+import com.medimate.model.Message;
+import com.medimate.model.Notification;
+import com.medimate.model.RevokedToken;
+import com.medimate.model.SchedulerNode;
+import com.medimate.model.WellnessDailyRollup;
+import com.medimate.model.WellnessLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Spring Boot leaves auto-index-creation off, so @Indexed/@CompoundIndex on a model does nothing
+// unless the type is listed here. Users are deliberately left out: their unique indexes can fail
+// on legacy duplicate data and we don't want that to block startup.
+@Component
+public class MongoIndexInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private static final List<Class<?>> INDEXED_TYPES = List.of(
+            AdherenceDailyRollup.class,
+            AuthToken.class,
+            ConversationSummary.class,
+            DoseEvent.class,
+            Medication.class,
+            Message.class,
+            Notification.class,
+            RevokedToken.class,
+            SchedulerNode.class,
+            WellnessDailyRollup.class,
+            WellnessLog.class
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate, MongoMappingContext mappingContext) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        for (Class<?> type : INDEXED_TYPES) {
+            try {
+                IndexOperations ops = mongoTemplate.indexOps(type);
+                resolver.resolveIndexFor(type).forEach(ops::ensureIndex);
+            } catch (Exception e) {
+                logger.warn("Could not ensure indexes for {}: {}", type.getSimpleName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.medimate.config;
+
+import com.medimate.model.AuthPrincipal;
+import com.medimate.service.ConversationService;
+import com.medimate.service.PrincipalService;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.Map;
+
+// Authenticates STOMP sessions with the same tokens as the REST API (an X-Auth-Token header on CONNECT)
+// and only lets users subscribe to conversations they are part of. The token is kept with the session
+// and re-resolved on each check, so a logout or a removed patient link takes effect within the
+// principal cache TTL rather than lasting as long as the socket.
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+    private static final String TOKEN = "token";
+    private static final String CONVERSATIONS = "/topic/conversations.";
+
+    private final PrincipalService principalService;
+
+    public StompAuthInterceptor(PrincipalService principalService) {
+        this.principalService = principalService;
+    }
+
+    // The session's user, as the user id; that is what /user/ destinations resolve against
+    private static final class StompUser implements Principal {
+        private final String userId;
+
+        StompUser(String userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public String getName() { return userId; }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) return message;
+
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            String token = accessor.getFirstNativeHeader(AuthPrincipalResolver.HEADER);
+            AuthPrincipal principal = token == null ? null : principalService.resolve(token);
+            if (principal == null) throw new MessageDeliveryException("Unauthorized");
+            Map<String, Object> session = accessor.getSessionAttributes();
+            if (session != null) session.put(TOKEN, token);
+            accessor.setUser(new StompUser(principal.getId()));
+        } else if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            String destination = accessor.getDestination();
+            if (destination == null) throw new MessageDeliveryException("Forbidden");
+            if (destination.startsWith("/user/")) return message; // always the subscriber's own queues
+            if (!destination.startsWith(CONVERSATIONS)) throw new MessageDeliveryException("Forbidden");
+            String[] ids = destination.substring(CONVERSATIONS.length()).split("\\.");
+            if (ids.length != 2 || ConversationService.sideOf(principalOf(accessor), ids[0], ids[1]) == null) {
+                throw new MessageDeliveryException("Forbidden");
+            }
+        }
+        return message;
+    }
+
+    // The current principal behind a STOMP session, or null once its token no longer resolves
+    public AuthPrincipal principalOf(SimpMessageHeaderAccessor accessor) {
+        Map<String, Object> session = accessor.getSessionAttributes();
+        Object token = session == null ? null : session.get(TOKEN);
+        return token == null ? null : principalService.resolve((String) token);
+    }
+}
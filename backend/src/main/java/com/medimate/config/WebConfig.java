@@ -0,0 +1,21 @@
+package com.medimate.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final AuthPrincipalResolver authPrincipalResolver;
+
+    public WebConfig(AuthPrincipalResolver authPrincipalResolver) {
+        this.authPrincipalResolver = authPrincipalResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(authPrincipalResolver);
+    }
+}
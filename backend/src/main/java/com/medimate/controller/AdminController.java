@@ -1,9 +1,14 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.User;
 import com.medimate.repo.UserRepository;
-import com.medimate.service.DailyDoseGenerator;
-import com.medimate.service.TokenService;
+import com.medimate.service.AdherenceRollupService;
+import com.medimate.service.ConversationService;
+import com.medimate.service.DoseLifecycleEngine;
+import com.medimate.service.NotificationRetentionService;
+import com.medimate.service.PrincipalService;
+import com.medimate.service.WellnessRollupService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,22 +21,33 @@ import java.util.Map;
 @RequestMapping("/api/admin")
 @CrossOrigin(origins = "*")
 public class AdminController {
-    private final UserRepository userRepository;
-    private final TokenService tokenService;
-    private final DailyDoseGenerator doseGenerator;
+    // Never handed out by registration; granted only by an existing admin (or directly in the database)
+    public static final String ADMIN_ROLE = "Admin";
 
-    public AdminController(UserRepository userRepository, TokenService tokenService, DailyDoseGenerator doseGenerator) {
+    private final UserRepository userRepository;
+    private final DoseLifecycleEngine doseEngine;
+    private final PrincipalService principalService;
+    private final WellnessRollupService wellnessRollups;
+    private final AdherenceRollupService adherenceRollups;
+    private final ConversationService conversations;
+    private final NotificationRetentionService notificationRetention;
+
+    public AdminController(UserRepository userRepository, DoseLifecycleEngine doseEngine,
+                           PrincipalService principalService, WellnessRollupService wellnessRollups,
+                           AdherenceRollupService adherenceRollups, ConversationService conversations,
+                           NotificationRetentionService notificationRetention) {
         this.userRepository = userRepository;
-        this.tokenService = tokenService;
-        this.doseGenerator = doseGenerator;
+        this.doseEngine = doseEngine;
+        this.principalService = principalService;
+        this.wellnessRollups = wellnessRollups;
+        this.adherenceRollups = adherenceRollups;
+        this.conversations = conversations;
+        this.notificationRetention = notificationRetention;
     }
 
     // Get Dashboard Statistics
     @GetMapping("/stats")
-    public ResponseEntity<?> getStats(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+    public ResponseEntity<?> getStats(AuthPrincipal principal) {
         long totalUsers = userRepository.count();
         long activeUsers = userRepository.countByStatus("Active");
         long elderlyUsers = userRepository.countByRole("Elderly User");
@@ -50,42 +66,31 @@ public class AdminController {
 
     // Get All Users
     @GetMapping("/users")
-    public ResponseEntity<?> getAllUsers(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+    public ResponseEntity<?> getAllUsers(AuthPrincipal principal) {
         List<User> users = userRepository.findAll();
         return ResponseEntity.ok(users);
     }
 
     // Get Users by Role
     @GetMapping("/users/role/{role}")
-    public ResponseEntity<?> getUsersByRole(@RequestHeader("X-Auth-Token") String token, @PathVariable String role) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+    public ResponseEntity<?> getUsersByRole(AuthPrincipal principal, @PathVariable String role) {
         List<User> users = userRepository.findByRole(role);
         return ResponseEntity.ok(users);
     }
 
     // Get Users by Status
     @GetMapping("/users/status/{status}")
-    public ResponseEntity<?> getUsersByStatus(@RequestHeader("X-Auth-Token") String token, @PathVariable String status) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+    public ResponseEntity<?> getUsersByStatus(AuthPrincipal principal, @PathVariable String status) {
         List<User> users = userRepository.findByStatus(status);
         return ResponseEntity.ok(users);
     }
 
     // Update User
     @PutMapping("/users/{id}")
-    public ResponseEntity<?> updateUser(@RequestHeader("X-Auth-Token") String token, 
+    public ResponseEntity<?> updateUser(AuthPrincipal principal, 
                                        @PathVariable String id, 
                                        @RequestBody Map<String, String> updates) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+        if (ADMIN_ROLE.equals(updates.get("role")) && !isAdmin(principal)) return forbidden();
         return userRepository.findById(id)
             .map(user -> {
                 if (updates.containsKey("fullName")) user.setFullName(updates.get("fullName"));
@@ -93,6 +98,7 @@ public class AdminController {
                 if (updates.containsKey("role")) user.setRole(updates.get("role"));
                 if (updates.containsKey("status")) user.setStatus(updates.get("status"));
                 userRepository.save(user);
+                principalService.invalidate(id);
                 return ResponseEntity.ok(Map.of("message", "User updated successfully", "user", user));
             })
             .orElse(ResponseEntity.notFound().build());
@@ -100,12 +106,10 @@ public class AdminController {
 
     // Delete User
     @DeleteMapping("/users/{id}")
-    public ResponseEntity<?> deleteUser(@RequestHeader("X-Auth-Token") String token, @PathVariable String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+    public ResponseEntity<?> deleteUser(AuthPrincipal principal, @PathVariable String id) {
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            principalService.invalidate(id);
             return ResponseEntity.ok(Map.of("message", "User deleted successfully"));
         }
         return ResponseEntity.notFound().build();
@@ -113,20 +117,14 @@ public class AdminController {
 
     // Get Caretakers
     @GetMapping("/caretakers")
-    public ResponseEntity<?> getCaretakers(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+    public ResponseEntity<?> getCaretakers(AuthPrincipal principal) {
         List<User> caretakers = userRepository.findByRole("Caregiver");
         return ResponseEntity.ok(caretakers);
     }
 
     // Get Activity Log (Mock for now)
     @GetMapping("/activity")
-    public ResponseEntity<?> getActivity(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-
+    public ResponseEntity<?> getActivity(AuthPrincipal principal) {
         // Return mock activity data
         return ResponseEntity.ok(List.of(
             Map.of("action", "User registered", "user", "John Doe", "time", "5 minutes ago"),
@@ -136,15 +134,74 @@ public class AdminController {
     
     // Manually trigger dose generation for today
     @PostMapping("/generate-doses")
-    public ResponseEntity<?> generateDoses(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-        
+    public ResponseEntity<?> generateDoses(AuthPrincipal principal) {
+        if (!isAdmin(principal)) return forbidden();
+        try {
+            DoseLifecycleEngine.GenerationResult result = doseEngine.generateDosesForDate(LocalDate.now());
+            if (!result.isComplete()) {
+                return ResponseEntity.status(500).body(Map.of(
+                        "error", result.getFailedPartitions() + " dose generation partitions failed; re-run to fill the gap",
+                        "created", result.getCreated()));
+            }
+            return ResponseEntity.ok(Map.of("message", "Doses generated successfully for today", "created", result.getCreated()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Rebuild the per-day wellness rollups from the raw logs
+    @PostMapping("/rollups/wellness/backfill")
+    public ResponseEntity<?> backfillWellnessRollups(AuthPrincipal principal) {
+        if (!isAdmin(principal)) return forbidden();
+        try {
+            wellnessRollups.backfill();
+            return ResponseEntity.ok(Map.of("message", "Wellness rollups rebuilt"));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Rebuild the per-day adherence rollups from the dose history
+    @PostMapping("/rollups/adherence/backfill")
+    public ResponseEntity<?> backfillAdherenceRollups(AuthPrincipal principal) {
+        if (!isAdmin(principal)) return forbidden();
+        try {
+            adherenceRollups.backfill();
+            return ResponseEntity.ok(Map.of("message", "Adherence rollups rebuilt"));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Rebuild the conversation inbox summaries from the messages
+    @PostMapping("/rollups/conversations/backfill")
+    public ResponseEntity<?> backfillConversationSummaries(AuthPrincipal principal) {
+        if (!isAdmin(principal)) return forbidden();
         try {
-            doseGenerator.generateDosesForDate(LocalDate.now());
-            return ResponseEntity.ok(Map.of("message", "Doses generated successfully for today"));
+            conversations.backfillSummaries();
+            return ResponseEntity.ok(Map.of("message", "Conversation summaries rebuilt"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
+
+    // Run the notification archival pass now instead of waiting for the scheduled one
+    @PostMapping("/notifications/archive")
+    public ResponseEntity<?> archiveNotifications(AuthPrincipal principal) {
+        if (!isAdmin(principal)) return forbidden();
+        try {
+            long archived = notificationRetention.archive();
+            return ResponseEntity.ok(Map.of("archived", archived));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static boolean isAdmin(AuthPrincipal principal) {
+        return ADMIN_ROLE.equals(principal.getRole());
+    }
+
+    private static ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(403).body(Map.of("error", "Admin role required"));
+    }
 }
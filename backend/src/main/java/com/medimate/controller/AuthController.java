@@ -1,8 +1,10 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.User;
 import com.medimate.repo.UserRepository;
 import com.medimate.service.AuthService;
+import com.medimate.service.CaretakerLinkCache;
 import com.medimate.service.TokenService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,11 +18,14 @@ public class AuthController {
     private final AuthService authService;
     private final TokenService tokenService;
     private final UserRepository userRepository;
+    private final CaretakerLinkCache caretakerLinks;
 
-    public AuthController(AuthService authService, TokenService tokenService, UserRepository userRepository) {
+    public AuthController(AuthService authService, TokenService tokenService, UserRepository userRepository,
+                          CaretakerLinkCache caretakerLinks) {
         this.authService = authService;
         this.tokenService = tokenService;
         this.userRepository = userRepository;
+        this.caretakerLinks = caretakerLinks;
     }
 
     @PostMapping("/register")
@@ -46,6 +51,9 @@ public class AuthController {
             if (role == null || role.trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Role is required"));
             }
+            if (AdminController.ADMIN_ROLE.equalsIgnoreCase(role.trim())) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid role"));
+            }
             
             // Username length validation
             if (username.length() < 3) {
@@ -79,6 +87,8 @@ public class AuthController {
                 email,
                 role
             );
+            // A patient record may already carry this email and was cached as having no user
+            caretakerLinks.invalidate(u.getId());
             return ResponseEntity.ok(Map.of(
                 "id", u.getId(), 
                 "message", "Registration successful",
@@ -119,20 +129,23 @@ public class AuthController {
         }
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("X-Auth-Token") String token) {
+        if (tokenService.validate(token) == null) return ResponseEntity.status(401).build();
+        tokenService.revoke(token);
+        return ResponseEntity.ok(Map.of("message", "Logged out"));
+    }
+
     @GetMapping("/me")
-    public ResponseEntity<?> me(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-        return userRepository.findById(userId)
-                .map(u -> ResponseEntity.ok(Map.of(
-                        "id", u.getId(),
-                        "username", u.getUsername(),
-                        "fullName", u.getFullName(),
-                        "email", u.getEmail() != null ? u.getEmail() : "",
-                        "role", u.getRole(),
-                        "status", u.getStatus(),
-                        "joinedDate", u.getJoinedDate() != null ? u.getJoinedDate() : ""
-                )))
-                .orElse(ResponseEntity.status(404).build());
+    public ResponseEntity<?> me(AuthPrincipal principal) {
+        return ResponseEntity.ok(Map.of(
+                "id", principal.getId(),
+                "username", principal.getUsername(),
+                "fullName", principal.getFullName(),
+                "email", principal.getEmail() != null ? principal.getEmail() : "",
+                "role", principal.getRole(),
+                "status", principal.getStatus(),
+                "joinedDate", principal.getJoinedDate() != null ? principal.getJoinedDate() : ""
+        ));
     }
 }
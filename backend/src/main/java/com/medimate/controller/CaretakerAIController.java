@@ -1,35 +1,36 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
+import com.medimate.service.GroqClient;
 import com.medimate.service.GroqService;
-import com.medimate.service.TokenService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/caretaker/ai")
 @CrossOrigin(origins = "*")
 public class CaretakerAIController {
-    private final TokenService tokenService;
     private final GroqService groqService;
 
-    public CaretakerAIController(TokenService tokenService, GroqService groqService) {
-        this.tokenService = tokenService;
+    public CaretakerAIController(GroqService groqService) {
         this.groqService = groqService;
     }
 
     @PostMapping("/insights")
-    public ResponseEntity<?> insights(@RequestHeader("X-Auth-Token") String token,
-                                      @RequestBody Map<String, Object> payload) {
-        String caretakerId = tokenService.validate(token);
-        if (caretakerId == null) return ResponseEntity.status(401).build();
+    public CompletableFuture<ResponseEntity<?>> insights(AuthPrincipal principal,
+                                                         @RequestBody Map<String, Object> payload) {
         String context = String.valueOf(payload.getOrDefault("context", ""));
-        try {
-            String result = groqService.generateInsights(context);
-            return ResponseEntity.ok(Map.of("insight", result));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
-        }
+        // The request thread is released while Groq answers
+        return groqService.generateInsights(context)
+                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(Map.of("insight", result)))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    int status = cause instanceof GroqClient.Unavailable ? 503 : 500;
+                    return ResponseEntity.status(status).body(Map.of("error", String.valueOf(cause.getMessage())));
+                });
     }
 }
@@ -1,8 +1,9 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.Patient;
 import com.medimate.repo.PatientRepository;
-import com.medimate.service.TokenService;
+import com.medimate.service.PrincipalService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,18 +14,17 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/caretaker/patients")
 @CrossOrigin(origins = "*")
 public class CaretakerAssignmentController {
-    private final TokenService tokenService;
     private final PatientRepository patientRepository;
+    private final PrincipalService principalService;
 
-    public CaretakerAssignmentController(TokenService tokenService, PatientRepository patientRepository) {
-        this.tokenService = tokenService;
+    public CaretakerAssignmentController(PatientRepository patientRepository, PrincipalService principalService) {
         this.patientRepository = patientRepository;
+        this.principalService = principalService;
     }
 
     @PostMapping("/claim")
-    public ResponseEntity<?> claim(@RequestHeader("X-Auth-Token") String token, @RequestBody Map<String, String> body) {
-        String caretakerId = tokenService.validate(token);
-        if (caretakerId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> claim(AuthPrincipal principal, @RequestBody Map<String, String> body) {
+        String caretakerId = principal.getId();
 
         String inputName = safe(body.get("name"));
         String email = safe(body.get("email"));
@@ -49,8 +49,10 @@ public class CaretakerAssignmentController {
 
         // Choose the best match (first for now)
         Patient p = matches.get(0);
+        String formerCaretaker = p.getCaretakerId();
         p.setCaretakerId(caretakerId);
         patientRepository.save(p);
+        principalService.invalidatePatient(p, formerCaretaker, null);
         return ResponseEntity.ok(p);
     }
 
@@ -2,7 +2,10 @@ package com.medimate.controller;
 
 import com.medimate.model.*;
 import com.medimate.repo.*;
-import com.medimate.service.TokenService;
+import com.medimate.service.AdherenceRollupService;
+import com.medimate.service.CaretakerLinkCache;
+import com.medimate.service.NotificationService;
+import com.medimate.service.PrincipalService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,29 +17,33 @@ import java.util.*;
 @RequestMapping("/api/caretaker")
 @CrossOrigin(origins = "*")
 public class CaretakerController {
-    private final TokenService tokenService;
+    private final PrincipalService principalService;
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notifications;
+    private final CaretakerLinkCache caretakerLinks;
+    private final AdherenceRollupService adherence;
 
-    public CaretakerController(TokenService tokenService, PatientRepository patientRepository,
+    public CaretakerController(PrincipalService principalService, PatientRepository patientRepository,
                               AppointmentRepository appointmentRepository, TaskRepository taskRepository,
-                              UserRepository userRepository, NotificationRepository notificationRepository) {
-        this.tokenService = tokenService;
+                              UserRepository userRepository, NotificationService notifications,
+                              CaretakerLinkCache caretakerLinks, AdherenceRollupService adherence) {
+        this.principalService = principalService;
         this.patientRepository = patientRepository;
         this.appointmentRepository = appointmentRepository;
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
-        this.notificationRepository = notificationRepository;
+        this.notifications = notifications;
+        this.caretakerLinks = caretakerLinks;
+        this.adherence = adherence;
     }
 
     // Dashboard Stats
     @GetMapping("/stats")
-    public ResponseEntity<?> getStats(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getStats(AuthPrincipal principal) {
+        String userId = principal.getId();
 
         long totalPatients = patientRepository.countByCaretakerId(userId);
         long activePatients = patientRepository.countByCaretakerIdAndStatus(userId, "Active");
@@ -55,18 +62,16 @@ public class CaretakerController {
     // ========== PATIENTS ==========
     
     @GetMapping("/patients")
-    public ResponseEntity<?> getAllPatients(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getAllPatients(AuthPrincipal principal) {
+        String userId = principal.getId();
 
         List<Patient> patients = patientRepository.findByCaretakerId(userId);
         return ResponseEntity.ok(patients);
     }
 
     @GetMapping("/patients/{id}")
-    public ResponseEntity<?> getPatient(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getPatient(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
 
         return patientRepository.findById(id)
             .filter(p -> p.getCaretakerId().equals(userId))
@@ -75,9 +80,8 @@ public class CaretakerController {
     }
 
     @PostMapping("/patients")
-    public ResponseEntity<?> addPatient(@RequestHeader("X-Auth-Token") String token, @RequestBody Patient patient) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> addPatient(AuthPrincipal principal, @RequestBody Patient patient) {
+        String userId = principal.getId();
 
         patient.setId(null);
         patient.setCaretakerId(userId);
@@ -85,19 +89,20 @@ public class CaretakerController {
         if (patient.getLastCheckup() == null) patient.setLastCheckup(LocalDate.now().toString());
         
         Patient saved = patientRepository.save(patient);
+        principalService.invalidatePatient(saved, null, null);
         return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/patients/{id}")
-    public ResponseEntity<?> updatePatient(@RequestHeader("X-Auth-Token") String token, 
+    public ResponseEntity<?> updatePatient(AuthPrincipal principal, 
                                           @PathVariable("id") String id, 
                                           @RequestBody Patient updatedPatient) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+        String userId = principal.getId();
 
         return patientRepository.findById(id)
             .filter(p -> p.getCaretakerId().equals(userId))
             .map(patient -> {
+                String formerContact = patient.getContactNumber();
                 if (updatedPatient.getName() != null) patient.setName(updatedPatient.getName());
                 if (updatedPatient.getAge() != null) patient.setAge(updatedPatient.getAge());
                 if (updatedPatient.getCondition() != null) patient.setCondition(updatedPatient.getCondition());
@@ -111,20 +116,21 @@ public class CaretakerController {
                 if (updatedPatient.getNextAppointment() != null) patient.setNextAppointment(updatedPatient.getNextAppointment());
                 
                 patientRepository.save(patient);
+                principalService.invalidatePatient(patient, null, formerContact);
                 return ResponseEntity.ok(patient);
             })
             .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/patients/{id}")
-    public ResponseEntity<?> deletePatient(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> deletePatient(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
 
         return patientRepository.findById(id)
             .filter(p -> p.getCaretakerId().equals(userId))
             .map(patient -> {
                 patientRepository.delete(patient);
+                principalService.invalidatePatient(patient, null, null);
                 return ResponseEntity.ok(Map.of("message", "Patient deleted successfully"));
             })
             .orElse(ResponseEntity.notFound().build());
@@ -133,18 +139,16 @@ public class CaretakerController {
     // ========== APPOINTMENTS ==========
     
     @GetMapping("/appointments")
-    public ResponseEntity<?> getAllAppointments(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getAllAppointments(AuthPrincipal principal) {
+        String userId = principal.getId();
 
         List<Appointment> appointments = appointmentRepository.findByCaretakerId(userId);
         return ResponseEntity.ok(appointments);
     }
 
     @GetMapping("/appointments/today")
-    public ResponseEntity<?> getTodayAppointments(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getTodayAppointments(AuthPrincipal principal) {
+        String userId = principal.getId();
 
         String today = LocalDate.now().toString();
         List<Appointment> appointments = appointmentRepository.findByCaretakerIdAndDate(userId, today);
@@ -152,9 +156,8 @@ public class CaretakerController {
     }
 
     @PostMapping("/appointments")
-    public ResponseEntity<?> addAppointment(@RequestHeader("X-Auth-Token") String token, @RequestBody Appointment appointment) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> addAppointment(AuthPrincipal principal, @RequestBody Appointment appointment) {
+        String userId = principal.getId();
 
         appointment.setId(null);
         appointment.setCaretakerId(userId);
@@ -165,11 +168,10 @@ public class CaretakerController {
     }
 
     @PutMapping("/appointments/{id}")
-    public ResponseEntity<?> updateAppointment(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> updateAppointment(AuthPrincipal principal,
                                               @PathVariable("id") String id,
                                               @RequestBody Appointment updatedAppointment) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+        String userId = principal.getId();
 
         return appointmentRepository.findById(id)
             .filter(a -> a.getCaretakerId().equals(userId))
@@ -188,9 +190,8 @@ public class CaretakerController {
     }
 
     @DeleteMapping("/appointments/{id}")
-    public ResponseEntity<?> deleteAppointment(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> deleteAppointment(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
 
         return appointmentRepository.findById(id)
             .filter(a -> a.getCaretakerId().equals(userId))
@@ -204,18 +205,16 @@ public class CaretakerController {
     // ========== TASKS ==========
     
     @GetMapping("/tasks")
-    public ResponseEntity<?> getAllTasks(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getAllTasks(AuthPrincipal principal) {
+        String userId = principal.getId();
 
         List<Task> tasks = taskRepository.findByCaretakerId(userId);
         return ResponseEntity.ok(tasks);
     }
 
     @PostMapping("/tasks")
-    public ResponseEntity<?> addTask(@RequestHeader("X-Auth-Token") String token, @RequestBody Task task) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> addTask(AuthPrincipal principal, @RequestBody Task task) {
+        String userId = principal.getId();
 
         task.setId(null);
         task.setCaretakerId(userId);
@@ -227,11 +226,10 @@ public class CaretakerController {
     }
 
     @PutMapping("/tasks/{id}")
-    public ResponseEntity<?> updateTask(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> updateTask(AuthPrincipal principal,
                                        @PathVariable("id") String id,
                                        @RequestBody Task updatedTask) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+        String userId = principal.getId();
 
         return taskRepository.findById(id)
             .filter(t -> t.getCaretakerId().equals(userId))
@@ -249,9 +247,8 @@ public class CaretakerController {
     }
 
     @DeleteMapping("/tasks/{id}")
-    public ResponseEntity<?> deleteTask(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> deleteTask(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
 
         return taskRepository.findById(id)
             .filter(t -> t.getCaretakerId().equals(userId))
@@ -263,9 +260,8 @@ public class CaretakerController {
     }
 
     @PatchMapping("/tasks/{id}/complete")
-    public ResponseEntity<?> completeTask(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> completeTask(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
 
         return taskRepository.findById(id)
             .filter(t -> t.getCaretakerId().equals(userId))
@@ -277,41 +273,57 @@ public class CaretakerController {
             .orElse(ResponseEntity.notFound().build());
     }
 
+    // ========== ADHERENCE ==========
+
+    // 7/30/90-day adherence per patient and per medication, read from the daily adherence rollups
+    @GetMapping("/adherence")
+    public ResponseEntity<?> getAdherence(AuthPrincipal principal) {
+        String userId = principal.getId();
+
+        List<Patient> patients = patientRepository.findByCaretakerId(userId);
+        Map<String, String> elders = caretakerLinks.eldersOf(patients.stream().map(Patient::getId).toList());
+        Map<String, AdherenceRollupService.UserAdherence> byElder = adherence.summarize(new HashSet<>(elders.values()));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Patient p : patients) {
+            String elderUserId = elders.get(p.getId());
+            AdherenceRollupService.UserAdherence a = elderUserId == null ? null : byElder.get(elderUserId);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("patientId", p.getId());
+            row.put("patientName", p.getName());
+            row.put("userId", elderUserId); // null until the patient has an account
+            row.put("adherence", a == null ? null : a.getWindows());
+            row.put("medications", a == null ? List.of() : a.getMedications());
+            rows.add(row);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("windows", AdherenceRollupService.WINDOWS);
+        response.put("patients", rows);
+        return ResponseEntity.ok(response);
+    }
+
     // ========== RING PATIENT ==========
     
     @PostMapping("/ring-patient")
-    public ResponseEntity<?> ringPatient(@RequestHeader("X-Auth-Token") String token, @RequestBody Map<String, String> payload) {
-        System.out.println("🔔 Ring patient endpoint called");
-        
-        String caretakerId = tokenService.validate(token);
-        if (caretakerId == null) {
-            System.out.println("❌ Invalid token");
-            return ResponseEntity.status(401).build();
-        }
-
+    public ResponseEntity<?> ringPatient(AuthPrincipal principal, @RequestBody Map<String, String> payload) {
         String patientEmail = payload.get("patientEmail");
         String patientName = payload.get("patientName");
         
-        System.out.println("📧 Patient email: " + patientEmail);
-        
         if (patientEmail == null || patientEmail.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Patient email is required"));
         }
 
         // Find the patient user by email
         List<User> users = userRepository.findByEmailIgnoreCase(patientEmail);
-        System.out.println("👥 Found " + users.size() + " users with email: " + patientEmail);
         
         if (users.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Patient not found"));
         }
 
         User patientUser = users.get(0);
-        System.out.println("✅ Patient found: " + patientUser.getUsername() + " (ID: " + patientUser.getId() + ")");
         
-        // Get caretaker info
-        User caretaker = userRepository.findById(caretakerId).orElse(null);
-        String caretakerName = caretaker != null ? caretaker.getUsername() : "Your Caretaker";
+        String caretakerName = principal.getUsername() != null ? principal.getUsername() : "Your Caretaker";
 
         // Create a special ring notification for the patient
         Notification notification = new Notification();
@@ -324,8 +336,8 @@ public class CaretakerController {
         notification.setRead(false);
         notification.setCreatedAt(LocalDateTime.now());
         
-        Notification saved = notificationRepository.save(notification);
-        System.out.println("💾 Notification saved with ID: " + saved.getId());
+        // Written by the outbox and pushed to the elder's open dashboards from there
+        Notification saved = notifications.enqueue(notification);
 
         return ResponseEntity.ok(Map.of(
             "message", "Ring notification sent to " + patientName,
@@ -1,13 +1,11 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.Medication;
-import com.medimate.model.DoseEvent;
 import com.medimate.model.User;
 import com.medimate.repo.MedicationRepository;
 import com.medimate.repo.UserRepository;
-import com.medimate.repo.DoseEventRepository;
-import com.medimate.service.TokenService;
-import com.medimate.service.MedicationCheckService;
+import com.medimate.service.DoseLifecycleEngine;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,29 +15,21 @@ import java.util.Map;
 @RequestMapping("/api/caretaker/medications")
 @CrossOrigin(origins = "*")
 public class CaretakerMedicationController {
-    private final TokenService tokenService;
     private final MedicationRepository medicationRepository;
     private final UserRepository userRepository;
-    private final DoseEventRepository doseRepo;
-    private final MedicationCheckService medicationCheckService;
+    private final DoseLifecycleEngine doseEngine;
 
-    public CaretakerMedicationController(TokenService tokenService,
-                                         MedicationRepository medicationRepository,
+    public CaretakerMedicationController(MedicationRepository medicationRepository,
                                          UserRepository userRepository,
-                                         DoseEventRepository doseRepo,
-                                         MedicationCheckService medicationCheckService) {
-        this.tokenService = tokenService;
+                                         DoseLifecycleEngine doseEngine) {
         this.medicationRepository = medicationRepository;
         this.userRepository = userRepository;
-        this.doseRepo = doseRepo;
-        this.medicationCheckService = medicationCheckService;
+        this.doseEngine = doseEngine;
     }
 
     @PostMapping("/assign")
-    public ResponseEntity<?> assign(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> assign(AuthPrincipal principal,
                                     @RequestBody Map<String, String> body) {
-        String caretakerId = tokenService.validate(token);
-        if (caretakerId == null) return ResponseEntity.status(401).build();
         String patientEmail = body.getOrDefault("patientEmail", "");
         String name = body.getOrDefault("name", "");
         String dosage = body.getOrDefault("dosage", "");
@@ -55,36 +45,22 @@ public class CaretakerMedicationController {
         m.setName(name);
         m.setDosage(dosage);
         m.setSchedule(schedule);
+        try {
+            m.compileSchedule();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         Medication saved = medicationRepository.save(m);
         
-        // Create medication logs for today's scheduled times
-        medicationCheckService.createLogsForMedication(saved);
-        
-        // Seed today's dose events from schedule times (HH:mm, comma-separated)
-        try {
-            java.time.LocalDate today = java.time.LocalDate.now();
-            for (String t : schedule.split(",")) {
-                String tt = t.trim();
-                if (tt.isEmpty()) continue;
-                java.time.LocalTime lt = java.time.LocalTime.parse(tt);
-                DoseEvent de = new DoseEvent();
-                de.setUserId(elder.getId());
-                de.setMedName(name);
-                de.setDosage(dosage);
-                de.setDueAt(java.time.LocalDateTime.of(today, lt));
-                de.setStatus("PENDING");
-                de.setUpdatedAt(java.time.LocalDateTime.now());
-                doseRepo.save(de);
-            }
-        } catch (Exception ignored) {}
+        // Seed today's remaining doses and medication logs; keyed on (medicationId, dueAt) so the
+        // nightly run won't duplicate them
+        doseEngine.generateDosesForMedication(saved);
         return ResponseEntity.ok(saved);
     }
 
     @GetMapping
-    public ResponseEntity<?> list(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> list(AuthPrincipal principal,
                                   @RequestParam(value = "patientEmail", required = false) String patientEmail) {
-        String caretakerId = tokenService.validate(token);
-        if (caretakerId == null) return ResponseEntity.status(401).build();
         if (patientEmail == null || patientEmail.isBlank()) {
             return ResponseEntity.badRequest().body(Map.of("error", "patientEmail is required"));
         }
@@ -94,26 +70,29 @@ public class CaretakerMedicationController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> delete(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> delete(AuthPrincipal principal,
                                     @PathVariable("id") String id) {
-        String caretakerId = tokenService.validate(token);
-        if (caretakerId == null) return ResponseEntity.status(401).build();
         return medicationRepository.findById(id)
                 .map(m -> { medicationRepository.delete(m); return ResponseEntity.noContent().build(); })
                 .orElse(ResponseEntity.status(404).build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<?> update(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> update(AuthPrincipal principal,
                                     @PathVariable("id") String id,
                                     @RequestBody Map<String, String> body) {
-        String caretakerId = tokenService.validate(token);
-        if (caretakerId == null) return ResponseEntity.status(401).build();
         return medicationRepository.findById(id)
                 .map(m -> {
                     if (body.containsKey("name")) m.setName(body.get("name"));
                     if (body.containsKey("dosage")) m.setDosage(body.get("dosage"));
-                    if (body.containsKey("schedule")) m.setSchedule(body.get("schedule"));
+                    if (body.containsKey("schedule")) {
+                        m.setSchedule(body.get("schedule"));
+                        try {
+                            m.compileSchedule();
+                        } catch (IllegalArgumentException e) {
+                            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+                        }
+                    }
                     return ResponseEntity.ok(medicationRepository.save(m));
                 })
                 .orElse(ResponseEntity.status(404).build());
@@ -1,50 +1,61 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.Notification;
 import com.medimate.repo.NotificationRepository;
-import com.medimate.service.TokenService;
+import com.medimate.service.NotificationService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/caretaker/notifications")
 @CrossOrigin(origins = "*")
 public class CaretakerNotificationController {
-    private final TokenService tokenService;
     private final NotificationRepository notificationRepository;
+    private final NotificationService notifications;
 
-    public CaretakerNotificationController(TokenService tokenService, NotificationRepository notificationRepository) {
-        this.tokenService = tokenService;
+    public CaretakerNotificationController(NotificationRepository notificationRepository,
+                                           NotificationService notifications) {
         this.notificationRepository = notificationRepository;
+        this.notifications = notifications;
     }
 
+    // Full list, or with ?since=<cursor> only what changed after it; 304 when the ETag still matches
     @GetMapping
-    public ResponseEntity<?> list(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-        List<Notification> list = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return ResponseEntity.ok(list);
+    public ResponseEntity<?> list(AuthPrincipal principal,
+                                  @RequestParam(value = "since", required = false) String since,
+                                  @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                  WebRequest request) {
+        String userId = principal.getId();
+        String etag = notifications.etag(userId);
+        if (request.checkNotModified(etag)) return null;
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (since == null) return ok.body(notificationRepository.findByUserIdOrderByCreatedAtDesc(userId));
+        try {
+            return ok.body(notifications.changedSince(userId, since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PostMapping
-    public ResponseEntity<?> create(@RequestHeader("X-Auth-Token") String token, @RequestBody Notification n) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> create(AuthPrincipal principal, @RequestBody Notification n) {
+        String userId = principal.getId();
         n.setId(null);
         n.setUserId(userId);
         if (n.getCreatedAt() == null) n.setCreatedAt(LocalDateTime.now());
-        return ResponseEntity.ok(notificationRepository.save(n));
+        return ResponseEntity.ok(notifications.send(n));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<?> update(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id, @RequestBody Notification updated) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> update(AuthPrincipal principal, @PathVariable("id") String id, @RequestBody Notification updated) {
+        String userId = principal.getId();
         return notificationRepository.findById(id)
                 .filter(n -> n.getUserId().equals(userId))
                 .map(n -> {
@@ -54,42 +65,36 @@ public class CaretakerNotificationController {
                     if (updated.getIcon() != null) n.setIcon(updated.getIcon());
                     if (updated.getColor() != null) n.setColor(updated.getColor());
                     n.setRead(updated.isRead());
-                    notificationRepository.save(n);
+                    notifications.save(n);
                     return ResponseEntity.ok(n);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping("/{id}/read")
-    public ResponseEntity<?> markRead(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> markRead(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
         return notificationRepository.findById(id)
                 .filter(n -> n.getUserId().equals(userId))
                 .map(n -> {
                     n.setRead(true);
-                    notificationRepository.save(n);
+                    notifications.save(n);
                     return ResponseEntity.ok(n);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping("/mark-all-read")
-    public ResponseEntity<?> markAllRead(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-        List<Notification> list = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        list.forEach(n -> { n.setRead(true);});
-        notificationRepository.saveAll(list);
+    public ResponseEntity<?> markAllRead(AuthPrincipal principal) {
+        String userId = principal.getId();
         Map<String, Object> res = new HashMap<>();
-        res.put("updated", list.size());
+        res.put("updated", notifications.markAllRead(userId));
         return ResponseEntity.ok(res);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> delete(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> delete(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
         return notificationRepository.findById(id)
                 .filter(n -> n.getUserId().equals(userId))
                 .map(n -> { notificationRepository.delete(n); return ResponseEntity.noContent().build(); })
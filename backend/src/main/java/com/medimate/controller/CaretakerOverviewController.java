@@ -0,0 +1,108 @@
+package com.medimate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medimate.model.*;
+import com.medimate.repo.DoseEventRepository;
+import com.medimate.repo.MedicationRepository;
+import com.medimate.repo.PatientRepository;
+import com.medimate.repo.WellnessLogRepository;
+import com.medimate.service.CaretakerLinkCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// The caretaker's whole patient board in one request. Patients are processed in batches: each batch
+// costs one elder lookup, one medication query, one dose query and one wellness query however many
+// patients it holds, and is written to the response before the next one is read, so the first
+// patients render while the rest are still loading and memory stays bounded.
+@RestController
+@RequestMapping("/api/caretaker/overview")
+@CrossOrigin(origins = "*")
+public class CaretakerOverviewController {
+    private final PatientRepository patientRepository;
+    private final MedicationRepository medicationRepository;
+    private final DoseEventRepository doseEventRepository;
+    private final WellnessLogRepository wellnessRepository;
+    private final CaretakerLinkCache caretakerLinks;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public CaretakerOverviewController(PatientRepository patientRepository, MedicationRepository medicationRepository,
+                                       DoseEventRepository doseEventRepository, WellnessLogRepository wellnessRepository,
+                                       CaretakerLinkCache caretakerLinks, ObjectMapper objectMapper,
+                                       @Value("${medimate.caretaker.overview-batch-size:50}") int batchSize) {
+        this.patientRepository = patientRepository;
+        this.medicationRepository = medicationRepository;
+        this.doseEventRepository = doseEventRepository;
+        this.wellnessRepository = wellnessRepository;
+        this.caretakerLinks = caretakerLinks;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // { "date": ..., "patients": [ { patient, userId, medications, todayDoses, latestWellness }, ... ] }
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> overview(AuthPrincipal principal) {
+        String userId = principal.getId();
+        List<Patient> patients = patientRepository.findByCaretakerId(userId);
+        LocalDate today = LocalDate.now();
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.createGenerator(out)) {
+                json.writeStartObject();
+                json.writeStringField("date", today.toString());
+                json.writeArrayFieldStart("patients");
+                for (int i = 0; i < patients.size(); i += batchSize) {
+                    for (Map<String, Object> entry : batch(patients.subList(i, Math.min(patients.size(), i + batchSize)), today)) {
+                        json.writeObject(entry);
+                    }
+                    json.flush();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private List<Map<String, Object>> batch(List<Patient> patients, LocalDate today) {
+        Map<String, String> elders = caretakerLinks.eldersOf(patients.stream().map(Patient::getId).collect(Collectors.toList()));
+        Set<String> elderIds = new HashSet<>(elders.values());
+
+        Map<String, List<Medication>> meds = new HashMap<>();
+        Map<String, List<DoseEvent>> doses = new HashMap<>();
+        Map<String, WellnessLog> wellness = new HashMap<>();
+        if (!elderIds.isEmpty()) {
+            for (Medication m : medicationRepository.findByUserIdIn(elderIds)) {
+                meds.computeIfAbsent(m.getUserId(), k -> new ArrayList<>()).add(m);
+            }
+            for (DoseEvent d : doseEventRepository.findDueBetweenForUsers(elderIds,
+                    today.atStartOfDay(), today.plusDays(1).atStartOfDay())) {
+                doses.computeIfAbsent(d.getUserId(), k -> new ArrayList<>()).add(d);
+            }
+            for (WellnessLog w : wellnessRepository.findLatestForUsers(elderIds)) {
+                wellness.put(w.getUserId(), w);
+            }
+        }
+
+        List<Map<String, Object>> entries = new ArrayList<>(patients.size());
+        for (Patient p : patients) {
+            String elder = elders.get(p.getId());
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("patient", p);
+            entry.put("userId", elder); // null until the patient has an account
+            entry.put("medications", elder == null ? List.of() : meds.getOrDefault(elder, List.of()));
+            entry.put("todayDoses", elder == null ? List.of() : doses.getOrDefault(elder, List.of()));
+            entry.put("latestWellness", elder == null ? null : wellness.get(elder));
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
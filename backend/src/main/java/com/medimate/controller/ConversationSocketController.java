@@ -0,0 +1,114 @@
+package com.medimate.controller;
+
+import com.medimate.config.StompAuthInterceptor;
+import com.medimate.model.AuthPrincipal;
+import com.medimate.model.Message;
+import com.medimate.service.ConversationService;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Live conversation channel over STOMP. Subscribe to /topic/conversations.{caretakerId}.{patientId} for
+// {type: "message"|"ack"} deltas, then:
+//   send   -> {content, clientId}  stores and broadcasts; the sender gets {clientId, id, seq} on /user/queue/acks
+//   ack    -> {seq}                records that this side has received everything up to seq
+//   read   -> {}                   this side has read the conversation; clears its unread count
+//   resume -> {afterSeq}           missed messages arrive on /user/queue/conversations (hasMore: ask again)
+@Controller
+public class ConversationSocketController {
+    private final ConversationService conversations;
+    private final StompAuthInterceptor auth;
+
+    public ConversationSocketController(ConversationService conversations, StompAuthInterceptor auth) {
+        this.conversations = conversations;
+        this.auth = auth;
+    }
+
+    @MessageMapping("conversations.{caretakerId}.{patientId}.send")
+    @SendToUser(value = "/queue/acks", broadcast = false)
+    public Map<String, Object> send(@DestinationVariable String caretakerId, @DestinationVariable String patientId,
+                                    @Payload Map<String, Object> body, SimpMessageHeaderAccessor headers) {
+        AuthPrincipal principal = auth.principalOf(headers);
+        String side = requireSide(principal, caretakerId, patientId);
+        Object content = body.get("content");
+        if (!(content instanceof String) || ((String) content).isBlank()) {
+            throw new IllegalArgumentException("content is required");
+        }
+
+        Message m = new Message();
+        m.setCaretakerId(caretakerId);
+        m.setPatientId(patientId);
+        m.setSender(side);
+        m.setContent((String) content);
+        if (ConversationService.PATIENT.equals(side)) m.setPatientName(principal.getFullName());
+        else if (body.get("patientName") instanceof String) m.setPatientName((String) body.get("patientName"));
+        Message saved = conversations.post(m);
+
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("clientId", body.get("clientId"));
+        receipt.put("id", saved.getId());
+        receipt.put("seq", saved.getSeq());
+        receipt.put("createdAt", saved.getCreatedAt());
+        return receipt;
+    }
+
+    @MessageMapping("conversations.{caretakerId}.{patientId}.ack")
+    public void ack(@DestinationVariable String caretakerId, @DestinationVariable String patientId,
+                    @Payload Map<String, Object> body, SimpMessageHeaderAccessor headers) {
+        String side = requireSide(auth.principalOf(headers), caretakerId, patientId);
+        conversations.ack(caretakerId, patientId, side, seqOf(body.get("seq")));
+    }
+
+    @MessageMapping("conversations.{caretakerId}.{patientId}.read")
+    public void read(@DestinationVariable String caretakerId, @DestinationVariable String patientId,
+                     SimpMessageHeaderAccessor headers) {
+        String side = requireSide(auth.principalOf(headers), caretakerId, patientId);
+        conversations.markRead(caretakerId, patientId, side);
+    }
+
+    @MessageMapping("conversations.{caretakerId}.{patientId}.resume")
+    @SendToUser(value = "/queue/conversations", broadcast = false)
+    public Map<String, Object> resume(@DestinationVariable String caretakerId, @DestinationVariable String patientId,
+                                      @Payload Map<String, Object> body, SimpMessageHeaderAccessor headers) {
+        requireSide(auth.principalOf(headers), caretakerId, patientId);
+        List<Message> messages = conversations.since(caretakerId, patientId, seqOf(body.get("afterSeq")));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("caretakerId", caretakerId);
+        response.put("patientId", patientId);
+        response.put("messages", messages);
+        response.put("hasMore", messages.size() == ConversationService.MAX_RESUME);
+        return response;
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(value = "/queue/errors", broadcast = false)
+    public Map<String, Object> handleError(Exception e) {
+        return Map.of("error", e.getMessage() == null ? "Request failed" : e.getMessage());
+    }
+
+    private static String requireSide(AuthPrincipal principal, String caretakerId, String patientId) {
+        String side = ConversationService.sideOf(principal, caretakerId, patientId);
+        if (side == null) throw new MessageDeliveryException("Forbidden");
+        return side;
+    }
+
+    private static long seqOf(Object value) {
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).longValue();
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("seq must be a number");
+        }
+    }
+}
@@ -2,205 +2,202 @@ package com.medimate.controller;
 
 import com.medimate.model.*;
 import com.medimate.repo.*;
-import com.medimate.service.TokenService;
 import com.medimate.service.GroqAIService;
+import com.medimate.service.NotificationService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/dashboard")
 @CrossOrigin(origins = "*")
 public class DashboardController {
-    private final TokenService tokenService;
+    private static final List<Integer> MOOD_TREND_WINDOWS = List.of(7, 30, 90, 365);
+
     private final MedicationRepository medicationRepository;
-    private final WellnessLogRepository wellnessRepository;
+    private final WellnessDailyRollupRepository wellnessRollupRepository;
     private final StreakRepository streakRepository;
     private final NotificationRepository notificationRepository;
+    private final NotificationService notifications;
     private final GroqAIService groqAIService;
     private final DoseEventRepository doseEventRepository;
 
-    public DashboardController(TokenService tokenService, MedicationRepository medicationRepository,
-                               WellnessLogRepository wellnessRepository, StreakRepository streakRepository,
+    public DashboardController(MedicationRepository medicationRepository,
+                               WellnessDailyRollupRepository wellnessRollupRepository, StreakRepository streakRepository,
                                NotificationRepository notificationRepository, GroqAIService groqAIService,
-                               DoseEventRepository doseEventRepository) {
-        this.tokenService = tokenService;
+                               DoseEventRepository doseEventRepository, NotificationService notifications) {
         this.medicationRepository = medicationRepository;
-        this.wellnessRepository = wellnessRepository;
+        this.wellnessRollupRepository = wellnessRollupRepository;
         this.streakRepository = streakRepository;
         this.notificationRepository = notificationRepository;
         this.groqAIService = groqAIService;
         this.doseEventRepository = doseEventRepository;
+        this.notifications = notifications;
     }
 
     @GetMapping("/stats")
-    public ResponseEntity<?> getStats(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getStats(AuthPrincipal principal) {
+        String userId = principal.getId();
 
-        List<Medication> meds = medicationRepository.findByUserId(userId);
-        List<WellnessLog> logs = wellnessRepository.findByUserId(userId);
+        long medCount = medicationRepository.countByUserId(userId);
+        // One rollup per day with logs, rather than every log
+        List<WellnessDailyRollup> rollups = wellnessRollupRepository.findByUserId(userId);
+        int totalLogs = rollups.stream().mapToInt(WellnessDailyRollup::getCount).sum();
         
         Streak streak = streakRepository.findByUserId(userId).orElse(new Streak());
         
         // Calculate today's mood average
         LocalDate today = LocalDate.now();
-        List<WellnessLog> todayLogs = logs.stream()
-            .filter(l -> l.getDate() != null && l.getDate().equals(today))
-            .collect(Collectors.toList());
+        WellnessDailyRollup todayRollup = rollups.stream()
+            .filter(r -> today.equals(r.getDate()))
+            .findFirst().orElse(null);
         
         String avgMood = "Good";
         double avgEnergy = 7.0;
-        if (!todayLogs.isEmpty()) {
-            avgEnergy = todayLogs.stream().mapToInt(WellnessLog::getEnergy).average().orElse(7.0);
+        if (todayRollup != null && todayRollup.getCount() > 0) {
+            if (todayRollup.getAverageEnergy() != null) avgEnergy = todayRollup.getAverageEnergy();
             // Simple mood calculation
-            long goodMoods = todayLogs.stream().filter(l -> "Good".equals(l.getMood())).count();
-            if (goodMoods > todayLogs.size() / 2) avgMood = "Good";
+            int goodMoods = moodCount(todayRollup.getMoods(), "Good");
+            if (goodMoods > todayRollup.getCount() / 2) avgMood = "Good";
             else avgMood = "Okay";
         }
 
         // Calculate medications completed today
-        List<DoseEvent> todayDoses = doseEventRepository.findByUserId(userId).stream()
-            .filter(d -> d.getDueAt() != null && d.getDueAt().toLocalDate().equals(today))
-            .collect(Collectors.toList());
-        long completedToday = todayDoses.stream()
-            .filter(d -> "TAKEN".equals(d.getStatus()))
-            .count();
+        DoseDaySummary todayDoses = doseEventRepository.summarizeDue(userId,
+                today.atStartOfDay(), today.plusDays(1).atStartOfDay());
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("streak", streak.getCurrentStreak());
-        stats.put("medicationsToday", todayDoses.size());
-        stats.put("medicationsCompleted", (int) completedToday);
+        stats.put("medicationsToday", todayDoses == null ? 0 : todayDoses.getTotal());
+        stats.put("medicationsCompleted", todayDoses == null ? 0 : todayDoses.getTaken());
         stats.put("mood", avgMood);
         stats.put("energy", (int) avgEnergy);
-        stats.put("totalMedications", meds.size());
-        stats.put("totalLogs", logs.size());
+        stats.put("totalMedications", (int) medCount);
+        stats.put("totalLogs", totalLogs);
 
         return ResponseEntity.ok(stats);
     }
 
     @GetMapping("/mood-trends")
-    public ResponseEntity<?> getMoodTrends(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getMoodTrends(AuthPrincipal principal,
+                                           @RequestParam(value = "days", defaultValue = "7") int days) {
+        String userId = principal.getId();
+        if (!MOOD_TREND_WINDOWS.contains(days)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "days must be one of " + MOOD_TREND_WINDOWS));
+        }
 
-        List<WellnessLog> logs = wellnessRepository.findByUserId(userId);
-        
-        // Get last 7 days
-        Map<String, Double> trends = new LinkedHashMap<>();
+        // Per-day averages come from the daily rollups; days without a log default to 5
         LocalDate today = LocalDate.now();
-        
-        for (int i = 6; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
-            String dayName = date.getDayOfWeek().toString().substring(0, 3);
-            
-            List<WellnessLog> dayLogs = logs.stream()
-                .filter(l -> l.getDate() != null && l.getDate().equals(date))
-                .collect(Collectors.toList());
-            
-            double avgEnergy = dayLogs.isEmpty() ? 5.0 : 
-                dayLogs.stream().mapToInt(WellnessLog::getEnergy).average().orElse(5.0);
-            
-            trends.put(dayName, avgEnergy);
+        LocalDate from = today.minusDays(days - 1);
+        Map<LocalDate, Double> byDay = new HashMap<>();
+        for (WellnessDailyRollup r : wellnessRollupRepository.findInRange(userId, from, today)) {
+            if (r.getDate() != null && r.getAverageEnergy() != null) byDay.put(r.getDate(), r.getAverageEnergy());
+        }
+
+        // The 7-day view keeps its weekday labels; longer windows are keyed by ISO date
+        Map<String, Double> trends = new LinkedHashMap<>();
+        for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+            String label = days == 7 ? date.getDayOfWeek().toString().substring(0, 3) : date.toString();
+            trends.put(label, byDay.getOrDefault(date, 5.0));
         }
 
         return ResponseEntity.ok(trends);
     }
 
     @GetMapping("/upcoming-medications")
-    public ResponseEntity<?> getUpcomingMedications(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getUpcomingMedications(AuthPrincipal principal) {
+        String userId = principal.getId();
 
         // Get today's dose events
-        List<DoseEvent> doses = doseEventRepository.findByUserId(userId);
         LocalDate today = LocalDate.now();
+        List<DoseEvent> doses = doseEventRepository.findDueBetween(userId,
+                today.atStartOfDay(), today.plusDays(1).atStartOfDay());
         DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
         
         List<Map<String, Object>> upcoming = new ArrayList<>();
         for (DoseEvent dose : doses) {
-            // Only show today's pending or upcoming doses
-            if (dose.getDueAt() != null && dose.getDueAt().toLocalDate().equals(today)) {
-                Map<String, Object> item = new HashMap<>();
-                item.put("name", dose.getMedName() + " " + (dose.getDosage() != null ? dose.getDosage() : ""));
-                item.put("time", dose.getDueAt().toLocalTime().format(timeFormatter));
-                item.put("countdown", dose.getStatus() != null ? dose.getStatus() : "PENDING");
-                upcoming.add(item);
-            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", dose.getMedName() + " " + (dose.getDosage() != null ? dose.getDosage() : ""));
+            item.put("time", dose.getDueAt().toLocalTime().format(timeFormatter));
+            item.put("countdown", dose.getStatus() != null ? dose.getStatus() : "PENDING");
+            upcoming.add(item);
         }
 
         return ResponseEntity.ok(upcoming);
     }
 
+    // Full list, or with ?since=<cursor> only what changed after it; 304 when the ETag still matches
     @GetMapping("/notifications")
-    public ResponseEntity<?> getNotifications(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getNotifications(AuthPrincipal principal,
+                                              @RequestParam(value = "since", required = false) String since,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                              WebRequest request) {
+        String userId = principal.getId();
 
-        List<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        
         // Create default notifications if none exist
-        if (notifications.isEmpty()) {
-            notifications = createDefaultNotifications(userId);
+        if (since == null && !notificationRepository.existsByUserId(userId)) {
+            createDefaultNotifications(userId);
         }
 
-        return ResponseEntity.ok(notifications);
+        String etag = notifications.etag(userId);
+        if (request.checkNotModified(etag)) return null;
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (since == null) return ok.body(notificationRepository.findByUserIdOrderByCreatedAtDesc(userId));
+        try {
+            return ok.body(notifications.changedSince(userId, since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PostMapping("/notifications")
-    public ResponseEntity<?> createNotification(@RequestHeader("X-Auth-Token") String token, 
+    public ResponseEntity<?> createNotification(AuthPrincipal principal, 
                                                 @RequestBody Notification notification) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+        String userId = principal.getId();
 
         notification.setUserId(userId);
         notification.setCreatedAt(LocalDateTime.now());
         notification.setRead(false);
         
-        Notification saved = notificationRepository.save(notification);
+        Notification saved = notifications.send(notification);
         return ResponseEntity.ok(saved);
     }
 
     @PostMapping("/notifications/{id}/read")
-    public ResponseEntity<?> markNotificationRead(@RequestHeader("X-Auth-Token") String token, 
+    public ResponseEntity<?> markNotificationRead(AuthPrincipal principal, 
                                                    @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+        String userId = principal.getId();
         
         return notificationRepository.findById(id)
                 .filter(n -> n.getUserId().equals(userId))
                 .map(n -> {
                     n.setRead(true);
-                    notificationRepository.save(n);
+                    notifications.save(n);
                     return ResponseEntity.ok(n);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping("/notifications/mark-all-read")
-    public ResponseEntity<?> markAllNotificationsRead(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-        
-        List<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        notifications.forEach(n -> n.setRead(true));
-        notificationRepository.saveAll(notifications);
+    public ResponseEntity<?> markAllNotificationsRead(AuthPrincipal principal) {
+        String userId = principal.getId();
         
         Map<String, Object> response = new HashMap<>();
-        response.put("updated", notifications.size());
+        response.put("updated", notifications.markAllRead(userId));
         return ResponseEntity.ok(response);
     }
 
     @DeleteMapping("/notifications/{id}")
-    public ResponseEntity<?> deleteNotification(@RequestHeader("X-Auth-Token") String token, 
+    public ResponseEntity<?> deleteNotification(AuthPrincipal principal, 
                                                 @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+        String userId = principal.getId();
         
         return notificationRepository.findById(id)
                 .filter(n -> n.getUserId().equals(userId))
@@ -212,24 +209,33 @@ public class DashboardController {
     }
 
     @GetMapping("/ai-insights")
-    public ResponseEntity<?> getAIInsights(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public CompletableFuture<ResponseEntity<?>> getAIInsights(AuthPrincipal principal) {
+        String userId = principal.getId();
 
-        List<WellnessLog> logs = wellnessRepository.findByUserId(userId);
-        List<Medication> meds = medicationRepository.findByUserId(userId);
+        List<WellnessDailyRollup> rollups = wellnessRollupRepository.findByUserId(userId);
+        long medCount = medicationRepository.countByUserId(userId);
+        
+        // Totals across all days, merged from the daily rollups
+        int logCount = 0;
+        int energyCount = 0;
+        long energySum = 0;
+        Map<String, Integer> moodCounts = new HashMap<>();
+        for (WellnessDailyRollup r : rollups) {
+            logCount += r.getCount();
+            energyCount += r.getEnergyCount();
+            energySum += r.getEnergySum();
+            if (r.getMoods() != null) r.getMoods().forEach((mood, n) -> moodCounts.merge(mood, n, Integer::sum));
+        }
         
         // Prepare data for AI
         Map<String, Object> userData = new HashMap<>();
-        userData.put("logCount", logs.size());
+        userData.put("logCount", logCount);
         
-        if (!logs.isEmpty()) {
-            double avgEnergy = logs.stream().mapToInt(WellnessLog::getEnergy).average().orElse(0.0);
+        if (logCount > 0) {
+            double avgEnergy = energyCount == 0 ? 0.0 : (double) energySum / energyCount;
             userData.put("avgEnergy", avgEnergy);
             
             // Find most common mood
-            Map<String, Long> moodCounts = logs.stream()
-                .collect(Collectors.groupingBy(WellnessLog::getMood, Collectors.counting()));
             String commonMood = moodCounts.entrySet().stream()
                 .max(Map.Entry.comparingByValue())
                 .map(Map.Entry::getKey)
@@ -240,16 +246,21 @@ public class DashboardController {
             userData.put("commonMood", "");
         }
         
-        userData.put("medicationCount", meds.size());
+        userData.put("medicationCount", (int) medCount);
         
-        // Get AI-generated insight
-        String insight = groqAIService.generateWellnessInsight(userData);
+        // Get AI-generated insight; the request thread is released while Groq answers
+        return groqAIService.generateWellnessInsight(userData).<ResponseEntity<?>>thenApply(insight -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("insight", insight);
+            response.put("type", "WELLNESS");
+            return ResponseEntity.ok(response);
+        });
+    }
 
-        Map<String, String> response = new HashMap<>();
-        response.put("insight", insight);
-        response.put("type", "WELLNESS");
-        
-        return ResponseEntity.ok(response);
+    private static int moodCount(Map<String, Integer> moods, String mood) {
+        if (moods == null) return 0;
+        Integer n = moods.get(mood);
+        return n == null ? 0 : n;
     }
 
     private List<Notification> createDefaultNotifications(String userId) {
@@ -264,7 +275,7 @@ public class DashboardController {
         n1.setColor("#3b82f6");
         n1.setCreatedAt(LocalDateTime.now());
         n1.setRead(false);
-        defaults.add(notificationRepository.save(n1));
+        defaults.add(notifications.save(n1));
         
         Notification n2 = new Notification();
         n2.setUserId(userId);
@@ -275,7 +286,7 @@ public class DashboardController {
         n2.setColor("#06b6d4");
         n2.setCreatedAt(LocalDateTime.now());
         n2.setRead(false);
-        defaults.add(notificationRepository.save(n2));
+        defaults.add(notifications.save(n2));
         
         return defaults;
     }
@@ -1,14 +1,12 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.DoseEvent;
-import com.medimate.model.Patient;
-import com.medimate.model.User;
 import com.medimate.model.Notification;
 import com.medimate.repo.DoseEventRepository;
-import com.medimate.repo.PatientRepository;
-import com.medimate.repo.UserRepository;
-import com.medimate.repo.NotificationRepository;
-import com.medimate.service.TokenService;
+import com.medimate.service.CaretakerLinkCache;
+import com.medimate.service.DoseLifecycleEngine;
+import com.medimate.service.NotificationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,73 +18,52 @@ import java.util.Map;
 @RequestMapping("/api/doses")
 @CrossOrigin(origins = "*")
 public class DoseController {
-    private final TokenService tokenService;
     private final DoseEventRepository doseRepo;
-    private final UserRepository userRepo;
-    private final PatientRepository patientRepo;
-    private final NotificationRepository notificationRepo;
+    private final NotificationService notifications;
+    private final DoseLifecycleEngine doseEngine;
+    private final CaretakerLinkCache caretakerLinks;
 
-    public DoseController(TokenService tokenService, DoseEventRepository doseRepo,
-                          UserRepository userRepo, PatientRepository patientRepo,
-                          NotificationRepository notificationRepo) {
-        this.tokenService = tokenService;
+    public DoseController(DoseEventRepository doseRepo,
+                          NotificationService notifications, DoseLifecycleEngine doseEngine,
+                          CaretakerLinkCache caretakerLinks) {
         this.doseRepo = doseRepo;
-        this.userRepo = userRepo;
-        this.patientRepo = patientRepo;
-        this.notificationRepo = notificationRepo;
+        this.notifications = notifications;
+        this.doseEngine = doseEngine;
+        this.caretakerLinks = caretakerLinks;
     }
 
     @GetMapping
-    public ResponseEntity<?> list(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> list(AuthPrincipal principal) {
+        String userId = principal.getId();
         List<DoseEvent> events = doseRepo.findByUserIdOrderByDueAtDesc(userId);
         return ResponseEntity.ok(events);
     }
 
     @PostMapping("/{id}/taken")
-    public ResponseEntity<?> markTaken(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> markTaken(AuthPrincipal principal,
                                        @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-        return doseRepo.findById(id)
-                .filter(d -> d.getUserId().equals(userId))
-                .map(d -> {
-                    d.setStatus("TAKEN");
-                    d.setUpdatedAt(LocalDateTime.now());
-                    doseRepo.save(d);
-                    return ResponseEntity.ok(Map.of("status","TAKEN"));
-                })
-                .orElse(ResponseEntity.status(404).build());
+        String userId = principal.getId();
+        DoseEvent d = doseEngine.updateStatus(id, userId, "TAKEN");
+        if (d == null) return ResponseEntity.status(404).build();
+        return ResponseEntity.ok(Map.of("status","TAKEN"));
     }
 
     @PostMapping("/{id}/skip")
-    public ResponseEntity<?> markSkipped(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> markSkipped(AuthPrincipal principal,
                                          @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
-        return doseRepo.findById(id)
-                .filter(d -> d.getUserId().equals(userId))
-                .map(d -> {
-                    d.setStatus("SKIPPED");
-                    d.setUpdatedAt(LocalDateTime.now());
-                    doseRepo.save(d);
-                    notifyCaretakerIfPossible(userId, d, "Dose skipped");
-                    return ResponseEntity.ok(Map.of("status","SKIPPED"));
-                })
-                .orElse(ResponseEntity.status(404).build());
+        String userId = principal.getId();
+        DoseEvent d = doseEngine.updateStatus(id, userId, "SKIPPED");
+        if (d == null) return ResponseEntity.status(404).build();
+        notifyCaretakerIfPossible(userId, d, "Dose skipped");
+        return ResponseEntity.ok(Map.of("status","SKIPPED"));
     }
 
+    // The same link the missed-dose alerts resolve, so skipped and missed doses reach the same caretaker
     private void notifyCaretakerIfPossible(String elderUserId, DoseEvent d, String title) {
-        // Find patient by elder email if possible
-        User u = userRepo.findById(elderUserId).orElse(null);
-        if (u == null || u.getEmail() == null) return;
-        List<Patient> plist = patientRepo.findByEmailIgnoreCase(u.getEmail());
-        if (plist.isEmpty()) return;
-        Patient p = plist.get(0);
-        if (p.getCaretakerId() == null) return;
+        CaretakerLinkCache.Link link = caretakerLinks.caretakerOf(elderUserId);
+        if (link == null) return;
         Notification n = new Notification();
-        n.setUserId(p.getCaretakerId());
+        n.setUserId(link.getCaretakerId());
         n.setTitle(title);
         n.setMessage((d.getMedName()==null?"Medication":d.getMedName()) + " " + (d.getDosage()==null?"":d.getDosage()));
         n.setType("MEDICATION");
@@ -94,6 +71,6 @@ public class DoseController {
         n.setColor("#ef4444");
         n.setCreatedAt(LocalDateTime.now());
         n.setRead(false);
-        notificationRepo.save(n);
+        notifications.enqueue(n);
     }
 }
@@ -3,6 +3,7 @@ package com.medimate.controller;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import com.medimate.model.User;
 import com.medimate.repo.UserRepository;
+import com.medimate.service.CaretakerLinkCache;
 import com.medimate.service.GoogleOAuthService;
 import com.medimate.service.TokenService;
 import org.springframework.http.ResponseEntity;
@@ -20,13 +21,16 @@ public class GoogleOAuthController {
     private final GoogleOAuthService googleOAuthService;
     private final UserRepository userRepository;
     private final TokenService tokenService;
+    private final CaretakerLinkCache caretakerLinks;
     
     public GoogleOAuthController(GoogleOAuthService googleOAuthService, 
                                 UserRepository userRepository,
-                                TokenService tokenService) {
+                                TokenService tokenService,
+                                CaretakerLinkCache caretakerLinks) {
         this.googleOAuthService = googleOAuthService;
         this.userRepository = userRepository;
         this.tokenService = tokenService;
+        this.caretakerLinks = caretakerLinks;
     }
     
     @PostMapping("/verify")
@@ -66,10 +70,11 @@ public class GoogleOAuthController {
                 user.setPassword("GOOGLE_OAUTH"); // No password for OAuth users
                 user.setRole("Elderly User"); // Default role for Google OAuth users
                 user = userRepository.save(user);
+                caretakerLinks.invalidate(user.getId());
             }
             
             // Generate auth token
-            String authToken = tokenService.generateToken(user.getId());
+            String authToken = tokenService.generateToken(user);
             
             // Return user info and token
             Map<String, Object> response = new HashMap<>();
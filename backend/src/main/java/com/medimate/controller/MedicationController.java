@@ -1,11 +1,11 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.Medication;
 import com.medimate.model.MedicationLog;
 import com.medimate.repo.MedicationLogRepository;
 import com.medimate.repo.MedicationRepository;
-import com.medimate.service.MedicationCheckService;
-import com.medimate.service.TokenService;
+import com.medimate.service.DoseLifecycleEngine;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,54 +19,52 @@ import java.util.Map;
 public class MedicationController {
     private final MedicationRepository medicationRepository;
     private final MedicationLogRepository medicationLogRepository;
-    private final TokenService tokenService;
-    private final MedicationCheckService medicationCheckService;
+    private final DoseLifecycleEngine doseEngine;
 
     public MedicationController(MedicationRepository medicationRepository,
                                 MedicationLogRepository medicationLogRepository,
-                                TokenService tokenService,
-                                MedicationCheckService medicationCheckService) {
+                                DoseLifecycleEngine doseEngine) {
         this.medicationRepository = medicationRepository;
         this.medicationLogRepository = medicationLogRepository;
-        this.tokenService = tokenService;
-        this.medicationCheckService = medicationCheckService;
+        this.doseEngine = doseEngine;
     }
 
     @GetMapping
-    public ResponseEntity<?> list(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> list(AuthPrincipal principal) {
+        String userId = principal.getId();
         List<Medication> meds = medicationRepository.findByUserId(userId);
         return ResponseEntity.ok(meds);
     }
 
     @PostMapping
-    public ResponseEntity<?> create(@RequestHeader("X-Auth-Token") String token, @RequestBody Medication med) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> create(AuthPrincipal principal, @RequestBody Medication med) {
+        String userId = principal.getId();
         med.setId(null);
         med.setUserId(userId);
+        try {
+            med.compileSchedule();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         Medication saved = medicationRepository.save(med);
         
-        // Create medication logs for today's scheduled times
-        medicationCheckService.createLogsForMedication(saved);
+        // Create today's remaining doses and medication logs
+        doseEngine.generateDosesForMedication(saved);
         
         return ResponseEntity.ok(saved);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> delete(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String id) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> delete(AuthPrincipal principal, @PathVariable("id") String id) {
+        String userId = principal.getId();
         return medicationRepository.findById(id).filter(m -> m.getUserId().equals(userId))
                 .map(m -> { medicationRepository.delete(m); return ResponseEntity.noContent().build(); })
                 .orElse(ResponseEntity.status(404).build());
     }
     
     @PostMapping("/{id}/take")
-    public ResponseEntity<?> markAsTaken(@RequestHeader("X-Auth-Token") String token, @PathVariable("id") String medId) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> markAsTaken(AuthPrincipal principal, @PathVariable("id") String medId) {
+        String userId = principal.getId();
         
         // Find the most recent pending log for this medication
         List<MedicationLog> logs = medicationLogRepository.findByUserIdAndStatus(userId, "PENDING");
@@ -80,6 +78,7 @@ public class MedicationController {
             targetLog.setStatus("TAKEN");
             targetLog.setTakenTime(LocalDateTime.now());
             medicationLogRepository.save(targetLog);
+            doseEngine.logTaken(targetLog);
             return ResponseEntity.ok(Map.of("success", true, "message", "Medication marked as taken"));
         }
         
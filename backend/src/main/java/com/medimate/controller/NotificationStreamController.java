@@ -0,0 +1,34 @@
+package com.medimate.controller;
+
+import com.medimate.config.AuthPrincipalResolver;
+import com.medimate.exception.UnauthorizedException;
+import com.medimate.model.AuthPrincipal;
+import com.medimate.service.NotificationHub;
+import com.medimate.service.PrincipalService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/notifications")
+@CrossOrigin(origins = "*")
+public class NotificationStreamController {
+    private final NotificationHub hub;
+    private final PrincipalService principalService;
+
+    public NotificationStreamController(NotificationHub hub, PrincipalService principalService) {
+        this.hub = hub;
+        this.principalService = principalService;
+    }
+
+    // Server-sent "notification" events for the signed-in user. EventSource can't set headers, so
+    // the token may also come as a query parameter here.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = AuthPrincipalResolver.HEADER, required = false) String header,
+                             @RequestParam(value = "token", required = false) String token) {
+        String t = header != null ? header : token;
+        AuthPrincipal principal = t == null ? null : principalService.resolve(t);
+        if (principal == null) throw new UnauthorizedException();
+        return hub.subscribe(principal.getId());
+    }
+}
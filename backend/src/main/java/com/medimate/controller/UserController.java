@@ -1,8 +1,9 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.User;
 import com.medimate.repo.UserRepository;
-import com.medimate.service.TokenService;
+import com.medimate.service.PrincipalService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,34 +13,34 @@ import java.util.Map;
 @RequestMapping("/api/user")
 @CrossOrigin(origins = "*")
 public class UserController {
-    private final TokenService tokenService;
     private final UserRepository userRepository;
+    private final PrincipalService principalService;
 
-    public UserController(TokenService tokenService, UserRepository userRepository) {
-        this.tokenService = tokenService;
+    public UserController(UserRepository userRepository, PrincipalService principalService) {
         this.userRepository = userRepository;
+        this.principalService = principalService;
     }
 
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> getProfile(AuthPrincipal principal) {
+        String userId = principal.getId();
         return userRepository.findById(userId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.status(404).build());
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<?> updateProfile(@RequestHeader("X-Auth-Token") String token,
+    public ResponseEntity<?> updateProfile(AuthPrincipal principal,
                                            @RequestBody Map<String, Object> updates) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+        String userId = principal.getId();
         return userRepository.findById(userId)
                 .map(u -> {
                     if (updates.containsKey("fullName")) u.setFullName(String.valueOf(updates.get("fullName")));
                     if (updates.containsKey("email")) u.setEmail(String.valueOf(updates.get("email")));
                     // phone/dob/address are patient fields; keep on Patient entity when linked, but store minimally here if needed
-                    return ResponseEntity.ok(userRepository.save(u));
+                    User saved = userRepository.save(u);
+                    principalService.invalidate(userId);
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.status(404).build());
     }
@@ -1,10 +1,11 @@
 package com.medimate.controller;
 
+import com.medimate.model.AuthPrincipal;
 import com.medimate.model.Streak;
 import com.medimate.model.WellnessLog;
 import com.medimate.repo.StreakRepository;
 import com.medimate.repo.WellnessLogRepository;
-import com.medimate.service.TokenService;
+import com.medimate.service.WellnessRollupService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,31 +18,31 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class WellnessController {
     private final WellnessLogRepository repo;
-    private final TokenService tokenService;
     private final StreakRepository streakRepository;
+    private final WellnessRollupService rollups;
 
-    public WellnessController(WellnessLogRepository repo, TokenService tokenService, StreakRepository streakRepository) {
+    public WellnessController(WellnessLogRepository repo, StreakRepository streakRepository,
+                              WellnessRollupService rollups) {
         this.repo = repo;
-        this.tokenService = tokenService;
         this.streakRepository = streakRepository;
+        this.rollups = rollups;
     }
 
     @GetMapping
-    public ResponseEntity<?> list(@RequestHeader("X-Auth-Token") String token) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> list(AuthPrincipal principal) {
+        String userId = principal.getId();
         List<WellnessLog> logs = repo.findByUserId(userId);
         return ResponseEntity.ok(logs);
     }
 
     @PostMapping
-    public ResponseEntity<?> create(@RequestHeader("X-Auth-Token") String token, @RequestBody WellnessLog log) {
-        String userId = tokenService.validate(token);
-        if (userId == null) return ResponseEntity.status(401).build();
+    public ResponseEntity<?> create(AuthPrincipal principal, @RequestBody WellnessLog log) {
+        String userId = principal.getId();
         log.setId(null);
         log.setUserId(userId);
         
         WellnessLog saved = repo.save(log);
+        rollups.record(saved);
         
         // Update streak
         updateStreak(userId, log.getDate());
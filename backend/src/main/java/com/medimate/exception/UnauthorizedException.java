@@ -0,0 +1,10 @@
+package com.medimate.exception;
+
+// Missing, invalid or expired X-Auth-Token; GlobalExceptionHandler turns it into a bare 401
+public class UnauthorizedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UnauthorizedException() {
+        super("Unauthorized");
+    }
+}
@@ -0,0 +1,45 @@
+package com.medimate.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+// Resolved doses per user, medication and day (by due date), moved between counters as doses
+// change status. PENDING doses aren't counted anywhere.
+@Document(collection = "adherence_daily_rollups")
+@CompoundIndex(name = "userId_date", def = "{'userId': 1, 'date': 1}")
+public class AdherenceDailyRollup {
+    @Id
+    private String id; // keyFor(userId, medicationId, date)
+
+    private String userId;
+    private String medicationId;
+    private String medName;
+    private LocalDate date;
+    private int taken;
+    private int skipped;
+    private int missed;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getMedicationId() { return medicationId; }
+    public void setMedicationId(String medicationId) { this.medicationId = medicationId; }
+    public String getMedName() { return medName; }
+    public void setMedName(String medName) { this.medName = medName; }
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+    public int getTaken() { return taken; }
+    public void setTaken(int taken) { this.taken = taken; }
+    public int getSkipped() { return skipped; }
+    public void setSkipped(int skipped) { this.skipped = skipped; }
+    public int getMissed() { return missed; }
+    public void setMissed(int missed) { this.missed = missed; }
+
+    public static String keyFor(String userId, String medicationId, LocalDate date) {
+        return userId + "@" + (medicationId == null ? "" : medicationId) + "@" + date;
+    }
+}
@@ -0,0 +1,42 @@
+package com.medimate.model;
+
+import java.util.List;
+
+// The signed-in user as seen by controllers: a snapshot of the User document plus the patient links
+// that used to be looked up per request. Immutable, so one instance can be shared across requests.
+public final class AuthPrincipal {
+    private final String id;
+    private final String username;
+    private final String fullName;
+    private final String email;
+    private final String role;
+    private final String status;
+    private final String joinedDate;
+    private final String patientId;   // the elder's own patient record (matched by email), if any
+    private final String caretakerId; // ...and the caretaker assigned to it
+    private final List<String> patientIds; // patients this user looks after as a caretaker
+
+    public AuthPrincipal(User u, Patient ownRecord, List<String> patientIds) {
+        this.id = u.getId();
+        this.username = u.getUsername();
+        this.fullName = u.getFullName();
+        this.email = u.getEmail();
+        this.role = u.getRole();
+        this.status = u.getStatus();
+        this.joinedDate = u.getJoinedDate();
+        this.patientId = ownRecord == null ? null : ownRecord.getId();
+        this.caretakerId = ownRecord == null ? null : ownRecord.getCaretakerId();
+        this.patientIds = List.copyOf(patientIds);
+    }
+
+    public String getId() { return id; }
+    public String getUsername() { return username; }
+    public String getFullName() { return fullName; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+    public String getStatus() { return status; }
+    public String getJoinedDate() { return joinedDate; }
+    public String getPatientId() { return patientId; }
+    public String getCaretakerId() { return caretakerId; }
+    public List<String> getPatientIds() { return patientIds; }
+}
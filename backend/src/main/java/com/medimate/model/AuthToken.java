@@ -0,0 +1,30 @@
+package com.medimate.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Session token shared by all replicas. Keyed by the SHA-256 of the token so the collection alone
+// can't be used to sign in.
+@Document(collection = "auth_tokens")
+public class AuthToken {
+    @Id
+    private String id;
+
+    private String userId;
+    private Instant createdAt;
+
+    @Indexed(expireAfterSeconds = 0) // Mongo removes the document once expiresAt passes
+    private Instant expiresAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,28 @@
+package com.medimate.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Per-conversation message counter, plus how far each side has acknowledged receiving
+@Document(collection = "conversation_sequences")
+public class ConversationSequence {
+    @Id
+    private String id; // keyFor(caretakerId, patientId)
+
+    private long seq;           // seq of the latest message
+    private long caretakerAck;  // highest seq the caretaker has received
+    private long patientAck;    // ...and the elder
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+    public long getCaretakerAck() { return caretakerAck; }
+    public void setCaretakerAck(long caretakerAck) { this.caretakerAck = caretakerAck; }
+    public long getPatientAck() { return patientAck; }
+    public void setPatientAck(long patientAck) { this.patientAck = patientAck; }
+
+    public static String keyFor(String caretakerId, String patientId) {
+        return caretakerId + ":" + patientId;
+    }
+}
@@ -0,0 +1,47 @@
+package com.medimate.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Inbox row for one caretaker <-> elder conversation, updated with each message so opening the inbox
+// reads one document per conversation
+@Document(collection = "conversation_summaries")
+@CompoundIndex(name = "caretakerId_lastAt", def = "{'caretakerId': 1, 'lastAt': -1}")
+public class ConversationSummary {
+    @Id
+    private String id; // ConversationSequence.keyFor(caretakerId, patientId)
+
+    private String caretakerId;
+    private String patientId;
+    private String patientName;
+    private String lastMessage;
+    private String lastSender;
+    private LocalDateTime lastAt;
+    private long lastSeq;
+    private int unreadForCaretaker; // patient messages the caretaker hasn't read
+    private int unreadForPatient;   // ...and the other way round
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getCaretakerId() { return caretakerId; }
+    public void setCaretakerId(String caretakerId) { this.caretakerId = caretakerId; }
+    public String getPatientId() { return patientId; }
+    public void setPatientId(String patientId) { this.patientId = patientId; }
+    public String getPatientName() { return patientName; }
+    public void setPatientName(String patientName) { this.patientName = patientName; }
+    public String getLastMessage() { return lastMessage; }
+    public void setLastMessage(String lastMessage) { this.lastMessage = lastMessage; }
+    public String getLastSender() { return lastSender; }
+    public void setLastSender(String lastSender) { this.lastSender = lastSender; }
+    public LocalDateTime getLastAt() { return lastAt; }
+    public void setLastAt(LocalDateTime lastAt) { this.lastAt = lastAt; }
+    public long getLastSeq() { return lastSeq; }
+    public void setLastSeq(long lastSeq) { this.lastSeq = lastSeq; }
+    public int getUnreadForCaretaker() { return unreadForCaretaker; }
+    public void setUnreadForCaretaker(int unreadForCaretaker) { this.unreadForCaretaker = unreadForCaretaker; }
+    public int getUnreadForPatient() { return unreadForPatient; }
+    public void setUnreadForPatient(int unreadForPatient) { this.unreadForPatient = unreadForPatient; }
+}
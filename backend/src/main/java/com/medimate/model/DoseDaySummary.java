@@ -0,0 +1,12 @@
+package com.medimate.model;
+
+// Result of DoseEventRepository.summarizeDue: dose counts for one user over a dueAt range
+public class DoseDaySummary {
+    private int total;
+    private int taken;
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+    public int getTaken() { return taken; }
+    public void setTaken(int taken) { this.taken = taken; }
+}
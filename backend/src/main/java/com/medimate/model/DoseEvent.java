@@ -1,19 +1,22 @@
 package com.medimate.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "dose_events")
+@CompoundIndex(name = "status_dueAt", def = "{'status': 1, 'dueAt': 1}") // missed-dose sweep
+@CompoundIndex(name = "userId_dueAt", def = "{'userId': 1, 'dueAt': 1}") // per-user date ranges
 public class DoseEvent {
     @Id
     private String id;
 
-    @Indexed
     private String userId; // elder user id
 
+    private String medicationId;
     private String medName;
     private String dosage;
 
@@ -22,6 +25,17 @@ public class DoseEvent {
 
     private String status; // PENDING, TAKEN, SKIPPED, MISSED
 
+    private boolean logMissed; // medication_logs projection already marked MISSED (5-minute deadline)
+
+    // Set together with the MISSED transitions so each replica can read back exactly the doses it flipped
+    private String logMissedBy;
+    private String missedBy;
+    // Caretaker alert: both missed phases race to claim it; alertSent is only set once the notification
+    // is stored, so a claim that never got that far is taken over after the retry interval
+    private String alertedBy;
+    private LocalDateTime alertClaimedAt;
+    private boolean alertSent;
+
     private LocalDateTime updatedAt;
 
     public String getId() { return id; }
@@ -30,6 +44,9 @@ public class DoseEvent {
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
 
+    public String getMedicationId() { return medicationId; }
+    public void setMedicationId(String medicationId) { this.medicationId = medicationId; }
+
     public String getMedName() { return medName; }
     public void setMedName(String medName) { this.medName = medName; }
 
@@ -42,6 +59,30 @@ public class DoseEvent {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    public boolean isLogMissed() { return logMissed; }
+    public void setLogMissed(boolean logMissed) { this.logMissed = logMissed; }
+
+    public String getAlertedBy() { return alertedBy; }
+    public void setAlertedBy(String alertedBy) { this.alertedBy = alertedBy; }
+
+    public LocalDateTime getAlertClaimedAt() { return alertClaimedAt; }
+    public void setAlertClaimedAt(LocalDateTime alertClaimedAt) { this.alertClaimedAt = alertClaimedAt; }
+
+    public boolean isAlertSent() { return alertSent; }
+    public void setAlertSent(boolean alertSent) { this.alertSent = alertSent; }
+
+    public String getLogMissedBy() { return logMissedBy; }
+    public void setLogMissedBy(String logMissedBy) { this.logMissedBy = logMissedBy; }
+
+    public String getMissedBy() { return missedBy; }
+    public void setMissedBy(String missedBy) { this.missedBy = missedBy; }
+
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    // Deterministic id for generated doses, so generating the same day twice upserts instead of duplicating.
+    // The matching MedicationLog shares the same id.
+    public static String keyFor(String medicationId, LocalDateTime dueAt) {
+        return medicationId + "@" + dueAt;
+    }
 }
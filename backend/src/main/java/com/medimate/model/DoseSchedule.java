@@ -0,0 +1,84 @@
+package com.medimate.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiled form of Medication.schedule ("08:00, 20:00"): a sorted, de-duplicated int[] of minute-of-day
+// offsets. Arrays handed out here may be shared, so callers must not modify them.
+public final class DoseSchedule {
+    private static final int MAX_CACHED = 10_000;
+    private static final int[] EMPTY = new int[0];
+    private static final Map<String, int[]> CACHE = new ConcurrentHashMap<>();
+
+    private DoseSchedule() {}
+
+    // Strict parse used when a schedule is written; rejects times that aren't H:mm / HH:mm. A blank
+    // schedule is still accepted, as it always was, and compiles to no doses.
+    public static int[] compile(String schedule) {
+        if (schedule == null || schedule.isBlank()) return EMPTY;
+        return parse(schedule, true);
+    }
+
+    // Lenient, cached parse for documents written before the compiled form was stored.
+    // Invalid entries are skipped, as the old per-run parsing did.
+    public static int[] forLegacy(String schedule) {
+        if (schedule == null || schedule.isBlank()) return EMPTY;
+        int[] cached = CACHE.get(schedule);
+        if (cached != null) return cached;
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        int[] minutes = parse(schedule, false);
+        CACHE.put(schedule, minutes);
+        return minutes;
+    }
+
+    // Index of the first slot at or after minuteOfDay, or minutes.length if none is left today
+    public static int firstSlotFrom(int[] minutes, int minuteOfDay) {
+        int i = Arrays.binarySearch(minutes, minuteOfDay);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private static int[] parse(String schedule, boolean strict) {
+        String[] parts = schedule.split(",");
+        int[] out = new int[parts.length];
+        int n = 0;
+        for (String part : parts) {
+            String t = part.trim();
+            if (t.isEmpty()) continue;
+            int minute = parseTime(t);
+            if (minute < 0) {
+                if (strict) throw new IllegalArgumentException("Invalid schedule time: " + t);
+                continue;
+            }
+            out[n++] = minute;
+        }
+        int[] minutes = Arrays.copyOf(out, n);
+        Arrays.sort(minutes);
+        return Arrays.stream(minutes).distinct().toArray();
+    }
+
+    // Returns the minute of day for "H:mm" / "HH:mm" (":ss", if present, must be valid but is ignored), or -1
+    private static int parseTime(String t) {
+        int colon = t.indexOf(':');
+        if (colon < 1 || colon > 2 || t.length() < colon + 3) return -1;
+        if (t.length() > colon + 3) {
+            if (t.charAt(colon + 3) != ':' || t.length() != colon + 6) return -1;
+            int sec = digits(t, colon + 4, colon + 6);
+            if (sec < 0 || sec > 59) return -1;
+        }
+        int h = digits(t, 0, colon);
+        int m = digits(t, colon + 1, colon + 3);
+        if (h < 0 || h > 23 || m < 0 || m > 59) return -1;
+        return h * 60 + m;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+}
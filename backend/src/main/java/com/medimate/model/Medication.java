@@ -1,6 +1,8 @@
 package com.medimate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -9,10 +11,13 @@ public class Medication {
     @Id
     private String id;
 
+    @Indexed
     private String userId;
     private String name;
     private String dosage;
     private String schedule; // e.g., "08:00, 20:00"
+    @JsonIgnore
+    private int[] scheduleMinutes; // compiled schedule, see DoseSchedule
     private boolean active = true;
 
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -26,7 +31,12 @@ public class Medication {
     public String getDosage() { return dosage; }
     public void setDosage(String dosage) { this.dosage = dosage; }
     public String getSchedule() { return schedule; }
-    public void setSchedule(String schedule) { this.schedule = schedule; }
+    public void setSchedule(String schedule) { this.schedule = schedule; this.scheduleMinutes = null; }
+    // Compiles and stores the schedule; throws IllegalArgumentException if it is invalid
+    public void compileSchedule() { this.scheduleMinutes = DoseSchedule.compile(schedule); }
+    public int[] getScheduleMinutes() {
+        return scheduleMinutes != null ? scheduleMinutes : DoseSchedule.forLegacy(schedule);
+    }
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
     public LocalDateTime getCreatedAt() { return createdAt; }
@@ -1,11 +1,14 @@
 package com.medimate.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "messages")
+@CompoundIndex(name = "conversation_seq", def = "{'caretakerId': 1, 'patientId': 1, 'seq': 1}") // resume after a seq
+@CompoundIndex(name = "conversation_createdAt", def = "{'caretakerId': 1, 'patientId': 1, 'createdAt': -1, '_id': -1}") // thread pages
 public class Message {
     @Id
     private String id;
@@ -18,6 +21,7 @@ public class Message {
     private String content;
     private LocalDateTime createdAt;
     private boolean read;
+    private Long seq; // position in its conversation, from ConversationSequence; null on older messages
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -35,4 +39,6 @@ public class Message {
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public boolean isRead() { return read; }
     public void setRead(boolean read) { this.read = read; }
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
 }
@@ -1,10 +1,15 @@
 package com.medimate.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "notifications")
+@CompoundIndex(name = "userId_createdAt", def = "{'userId': 1, 'createdAt': -1}") // newest-first lists
+@CompoundIndex(name = "userId_updatedAt", def = "{'userId': 1, 'updatedAt': 1}")  // since-cursor sync and ETags
+@CompoundIndex(name = "userId_unread", def = "{'userId': 1}", partialFilter = "{'read': false}") // mark-all-read; holds only unread rows
+@CompoundIndex(name = "read_type_createdAt", def = "{'type': 1, 'createdAt': 1}", partialFilter = "{'read': true}") // retention sweep
 public class Notification {
     @Id
     private String id;
@@ -17,6 +22,8 @@ public class Notification {
     private String color;
     private LocalDateTime createdAt;
     private boolean read;
+    private LocalDateTime updatedAt; // set by NotificationService on every write
+    private Integer count; // alerts folded into this digest by NotificationAggregator; null on single ones
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -36,4 +43,8 @@ public class Notification {
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public boolean isRead() { return read; }
     public void setRead(boolean read) { this.read = read; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public Integer getCount() { return count; }
+    public void setCount(Integer count) { this.count = count; }
 }
@@ -0,0 +1,27 @@
+package com.medimate.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// One document per userId shard; the replica holding an unexpired lease runs that shard's scheduled work
+@Document(collection = "scheduler_leases")
+public class SchedulerLease {
+    @Id
+    private Integer id; // shard number
+
+    private String owner; // node id, null when released
+    private Instant expiresAt;
+    private LocalDate generatedFor; // last day whose doses were generated for this shard
+
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+    public LocalDate getGeneratedFor() { return generatedFor; }
+    public void setGeneratedFor(LocalDate generatedFor) { this.generatedFor = generatedFor; }
+}
@@ -0,0 +1,22 @@
+package com.medimate.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Heartbeat of a running backend replica, used to size each replica's share of the shards
+@Document(collection = "scheduler_nodes")
+public class SchedulerNode {
+    @Id
+    private String id;
+
+    @Indexed(expireAfterSeconds = 3600) // dead replicas clean themselves up
+    private Instant heartbeatAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public Instant getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(Instant heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+}
@@ -0,0 +1,52 @@
+package com.medimate.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// Per-user, per-day summary of wellness logs, kept up to date with $inc as logs are written
+@Document(collection = "wellness_daily_rollups")
+@CompoundIndex(name = "userId_date", def = "{'userId': 1, 'date': 1}")
+public class WellnessDailyRollup {
+    @Id
+    private String id; // keyFor(userId, date)
+
+    private String userId;
+    private LocalDate date;
+    private int count;       // logs that day
+    private int energyCount; // ...of which had an energy value
+    private long energySum;
+    private Integer energyMin;
+    private Integer energyMax;
+    private Map<String, Integer> moods; // mood -> number of logs
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+    public int getCount() { return count; }
+    public void setCount(int count) { this.count = count; }
+    public int getEnergyCount() { return energyCount; }
+    public void setEnergyCount(int energyCount) { this.energyCount = energyCount; }
+    public long getEnergySum() { return energySum; }
+    public void setEnergySum(long energySum) { this.energySum = energySum; }
+    public Integer getEnergyMin() { return energyMin; }
+    public void setEnergyMin(Integer energyMin) { this.energyMin = energyMin; }
+    public Integer getEnergyMax() { return energyMax; }
+    public void setEnergyMax(Integer energyMax) { this.energyMax = energyMax; }
+    public Map<String, Integer> getMoods() { return moods; }
+    public void setMoods(Map<String, Integer> moods) { this.moods = moods; }
+
+    public Double getAverageEnergy() {
+        return energyCount == 0 ? null : (double) energySum / energyCount;
+    }
+
+    public static String keyFor(String userId, LocalDate date) {
+        return userId + "@" + date;
+    }
+}
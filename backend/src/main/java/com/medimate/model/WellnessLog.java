@@ -1,10 +1,12 @@
 package com.medimate.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
 
 @Document(collection = "wellness_logs")
+@CompoundIndex(name = "userId_date", def = "{'userId': 1, 'date': 1}") // per-user date windows
 public class WellnessLog {
     @Id
     private String id;
@@ -0,0 +1,10 @@
+package com.medimate.repo;
+
+import com.medimate.model.ConversationSummary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface ConversationSummaryRepository extends MongoRepository<ConversationSummary, String> {
+    List<ConversationSummary> findByCaretakerIdOrderByLastAtDesc(String caretakerId);
+}
@@ -1,13 +1,34 @@
 package com.medimate.repo;
 
+import com.medimate.model.DoseDaySummary;
 import com.medimate.model.DoseEvent;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface DoseEventRepository extends MongoRepository<DoseEvent, String> {
-    List<DoseEvent> findByUserId(String userId);
     List<DoseEvent> findByUserIdOrderByDueAtDesc(String userId);
-    List<DoseEvent> findByStatusAndDueAtBefore(String status, LocalDateTime cutoff);
+
+    // Doses due in [from, to), served by the (userId, dueAt) index; only the fields the dashboard shows
+    @Query(value = "{ 'userId': ?0, 'dueAt': { '$gte': ?1, '$lt': ?2 } }",
+           fields = "{ 'medName': 1, 'dosage': 1, 'dueAt': 1, 'status': 1 }",
+           sort = "{ 'dueAt': 1 }")
+    List<DoseEvent> findDueBetween(String userId, LocalDateTime from, LocalDateTime to);
+
+    // The same window for a batch of users, e.g. a caretaker's whole patient list
+    @Query(value = "{ 'userId': { '$in': ?0 }, 'dueAt': { '$gte': ?1, '$lt': ?2 } }",
+           fields = "{ 'userId': 1, 'medicationId': 1, 'medName': 1, 'dosage': 1, 'dueAt': 1, 'status': 1 }",
+           sort = "{ 'dueAt': 1 }")
+    List<DoseEvent> findDueBetweenForUsers(Collection<String> userIds, LocalDateTime from, LocalDateTime to);
+
+    // Total and taken counts for doses due in [from, to), computed in the database
+    @Aggregation(pipeline = {
+            "{ '$match': { 'userId': ?0, 'dueAt': { '$gte': ?1, '$lt': ?2 } } }",
+            "{ '$group': { '_id': null, 'total': { '$sum': 1 }, 'taken': { '$sum': { '$cond': [ { '$eq': [ '$status', 'TAKEN' ] }, 1, 0 ] } } } }"
+    })
+    DoseDaySummary summarizeDue(String userId, LocalDateTime from, LocalDateTime to);
 }
@@ -3,8 +3,11 @@ package com.medimate.repo;
 import com.medimate.model.Medication;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface MedicationRepository extends MongoRepository<Medication, String> {
     List<Medication> findByUserId(String userId);
+    List<Medication> findByUserIdIn(Collection<String> userIds);
+    long countByUserId(String userId);
 }
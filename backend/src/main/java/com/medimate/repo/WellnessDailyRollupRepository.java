@@ -0,0 +1,16 @@
+package com.medimate.repo;
+
+import com.medimate.model.WellnessDailyRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface WellnessDailyRollupRepository extends MongoRepository<WellnessDailyRollup, String> {
+    List<WellnessDailyRollup> findByUserId(String userId);
+
+    // Rollups for days in [from, to], oldest first, over the (userId, date) index
+    @Query(value = "{ 'userId': ?0, 'date': { '$gte': ?1, '$lte': ?2 } }", sort = "{ 'date': 1 }")
+    List<WellnessDailyRollup> findInRange(String userId, LocalDate from, LocalDate to);
+}
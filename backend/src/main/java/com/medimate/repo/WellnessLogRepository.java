@@ -1,10 +1,21 @@
 package com.medimate.repo;
 
 import com.medimate.model.WellnessLog;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface WellnessLogRepository extends MongoRepository<WellnessLog, String> {
     List<WellnessLog> findByUserId(String userId);
+
+    // Each user's most recent log, walking the (userId, date) index backwards
+    @Aggregation(pipeline = {
+            "{ '$match': { 'userId': { '$in': ?0 } } }",
+            "{ '$sort': { 'userId': -1, 'date': -1 } }",
+            "{ '$group': { '_id': '$userId', 'latest': { '$first': '$$ROOT' } } }",
+            "{ '$replaceRoot': { 'newRoot': '$latest' } }"
+    })
+    List<WellnessLog> findLatestForUsers(Collection<String> userIds);
 }
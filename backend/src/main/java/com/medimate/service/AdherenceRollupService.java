@@ -0,0 +1,221 @@
+package com.medimate.service;
+
+import com.medimate.model.AdherenceDailyRollup;
+import com.medimate.model.DoseEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Keeps AdherenceDailyRollup in step with dose_events. Every status transition moves one count from
+// the old status' counter to the new one with $inc, so the rollups stay exact however often a dose
+// changes its mind (MISSED then TAKEN late, TAKEN then SKIPPED). Callers pass the status the dose had
+// before their own atomic update, never a value read earlier. Adherence windows are summed from at
+// most one row per medication and day, whatever the number of doses behind them.
+@Service
+public class AdherenceRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(AdherenceRollupService.class);
+    public static final List<Integer> WINDOWS = List.of(7, 30, 90);
+
+    private final MongoTemplate mongoTemplate;
+
+    public AdherenceRollupService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Counts over one window; percent is null when no dose in it has been resolved yet
+    public static final class Counts {
+        private int taken;
+        private int skipped;
+        private int missed;
+
+        void add(AdherenceDailyRollup r) {
+            taken += r.getTaken();
+            skipped += r.getSkipped();
+            missed += r.getMissed();
+        }
+
+        public int getTaken() { return taken; }
+        public int getSkipped() { return skipped; }
+        public int getMissed() { return missed; }
+
+        public Double getPercent() {
+            int resolved = taken + skipped + missed;
+            return resolved == 0 ? null : Math.round(taken * 1000.0 / resolved) / 10.0;
+        }
+    }
+
+    public static final class MedicationAdherence {
+        private final String medicationId;
+        private String medName;
+        private final Map<Integer, Counts> windows = windows();
+
+        MedicationAdherence(String medicationId) {
+            this.medicationId = medicationId;
+        }
+
+        public String getMedicationId() { return medicationId; }
+        public String getMedName() { return medName; }
+        public Map<Integer, Counts> getWindows() { return windows; }
+    }
+
+    public static final class UserAdherence {
+        private final Map<Integer, Counts> windows = windows();
+        private final Map<String, MedicationAdherence> medications = new LinkedHashMap<>();
+
+        public Map<Integer, Counts> getWindows() { return windows; }
+        public Collection<MedicationAdherence> getMedications() { return medications.values(); }
+    }
+
+    private static Map<Integer, Counts> windows() {
+        Map<Integer, Counts> m = new LinkedHashMap<>();
+        for (int days : WINDOWS) m.put(days, new Counts());
+        return m;
+    }
+
+    // ========== UPDATES ==========
+
+    // One dose went from previousStatus to status
+    public void transition(DoseEvent dose, String previousStatus, String status) {
+        apply(List.of(dose), previousStatus, status);
+    }
+
+    // Several doses made the same transition, e.g. a page of PENDING doses marked MISSED
+    public void apply(List<DoseEvent> doses, String previousStatus, String status) {
+        String from = counter(previousStatus);
+        String to = counter(status);
+        if (Objects.equals(from, to) || doses.isEmpty()) return;
+
+        // Doses for the same medication and day collapse into one upsert. $inc takes one amount per
+        // field, so the doses behind a key are counted first and moved in a single increment.
+        Map<String, Update> updates = new LinkedHashMap<>();
+        Map<String, Integer> moved = new HashMap<>();
+        Instant now = Instant.now();
+        for (DoseEvent d : doses) {
+            if (d.getUserId() == null || d.getDueAt() == null) continue;
+            LocalDate date = d.getDueAt().toLocalDate();
+            String medicationId = d.getMedicationId() == null ? "" : d.getMedicationId();
+            String key = AdherenceDailyRollup.keyFor(d.getUserId(), medicationId, date);
+            Update u = updates.computeIfAbsent(key, k -> new Update()
+                    .setOnInsert("userId", d.getUserId())
+                    .setOnInsert("medicationId", medicationId)
+                    .setOnInsert("date", date)
+                    .set("updatedAt", now));
+            if (d.getMedName() != null) u.set("medName", d.getMedName());
+            moved.merge(key, 1, Integer::sum);
+        }
+        if (updates.isEmpty()) return;
+        updates.forEach((key, u) -> {
+            int n = moved.get(key);
+            if (from != null) u.inc(from, -n);
+            if (to != null) u.inc(to, n);
+        });
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AdherenceDailyRollup.class);
+        updates.forEach((id, u) -> ops.upsert(new Query(where("_id").is(id)), u));
+        ops.execute();
+    }
+
+    private static String counter(String status) {
+        if ("TAKEN".equals(status)) return "taken";
+        if ("SKIPPED".equals(status)) return "skipped";
+        if ("MISSED".equals(status)) return "missed";
+        return null;
+    }
+
+    // ========== READS ==========
+
+    // 7/30/90-day adherence for each user, overall and per medication, ending today
+    public Map<String, UserAdherence> summarize(Collection<String> userIds) {
+        Map<String, UserAdherence> out = new LinkedHashMap<>();
+        for (String id : userIds) out.put(id, new UserAdherence());
+        if (out.isEmpty()) return out;
+
+        LocalDate today = LocalDate.now();
+        int longest = Collections.max(WINDOWS);
+        Query q = new Query(where("userId").in(out.keySet()).and("date").gte(today.minusDays(longest - 1)).lte(today));
+        q.fields().include("userId", "medicationId", "medName", "date", "taken", "skipped", "missed");
+        for (AdherenceDailyRollup r : mongoTemplate.find(q, AdherenceDailyRollup.class)) {
+            UserAdherence user = out.get(r.getUserId());
+            if (user == null || r.getDate() == null) continue;
+            MedicationAdherence med = user.medications.computeIfAbsent(
+                    r.getMedicationId() == null ? "" : r.getMedicationId(), MedicationAdherence::new);
+            if (r.getMedName() != null) med.medName = r.getMedName();
+            for (int days : WINDOWS) {
+                if (r.getDate().isBefore(today.minusDays(days - 1))) continue;
+                user.windows.get(days).add(r);
+                med.windows.get(days).add(r);
+            }
+        }
+        return out;
+    }
+
+    // ========== BACKFILL ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (mongoTemplate.estimatedCount(AdherenceDailyRollup.class) > 0) return;
+            if (mongoTemplate.estimatedCount(DoseEvent.class) == 0) return;
+            logger.info("Adherence rollups are empty, building them from existing doses");
+            backfill();
+        } catch (Exception e) {
+            logger.warn("Adherence rollup backfill failed: {}", e.getMessage());
+        }
+    }
+
+    // Rebuilds every rollup from dose_events in one server-side aggregation. A transition made while
+    // this runs may be counted twice for its day; re-running the backfill settles it.
+    public void backfill() {
+        long started = System.currentTimeMillis();
+        // dueAt is stored as local time in the server's zone, which is the day we want to bucket by
+        String zone = ZoneId.systemDefault().getId();
+        Document day = new Document("$dateTrunc", new Document("date", "$dueAt").append("unit", "day").append("timezone", zone));
+        Document dayKey = new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                .append("date", "$_id.d").append("timezone", zone));
+
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("status", new Document("$in", List.of("TAKEN", "SKIPPED", "MISSED")))
+                        .append("userId", new Document("$type", "string"))
+                        .append("dueAt", new Document("$type", "date"))),
+                new Document("$group", new Document("_id", new Document("u", "$userId")
+                        .append("m", new Document("$ifNull", List.of("$medicationId", ""))).append("d", day))
+                        .append("medName", new Document("$last", "$medName"))
+                        .append("taken", countOf("TAKEN"))
+                        .append("skipped", countOf("SKIPPED"))
+                        .append("missed", countOf("MISSED"))),
+                new Document("$project", new Document("_id", new Document("$concat", List.of("$_id.u", "@", "$_id.m", "@", dayKey)))
+                        .append("userId", "$_id.u")
+                        .append("medicationId", "$_id.m")
+                        .append("medName", 1)
+                        .append("date", "$_id.d")
+                        .append("taken", 1)
+                        .append("skipped", 1)
+                        .append("missed", 1)
+                        .append("updatedAt", "$$NOW")),
+                new Document("$merge", new Document("into", mongoTemplate.getCollectionName(AdherenceDailyRollup.class))
+                        .append("on", "_id")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert"))
+        );
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(DoseEvent.class))
+                .aggregate(pipeline).allowDiskUse(true).toCollection();
+        logger.info("Adherence rollups rebuilt in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private static Document countOf(String status) {
+        return new Document("$sum", new Document("$cond", List.of(new Document("$eq", List.of("$status", status)), 1, 0)));
+    }
+}
@@ -38,6 +38,6 @@ public class AuthService {
         if (!u.getPassword().equals(password)) {
             throw new RuntimeException("Invalid credentials");
         }
-        return tokenService.generateToken(u.getId());
+        return tokenService.generateToken(u);
     }
 }
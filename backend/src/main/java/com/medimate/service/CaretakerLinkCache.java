@@ -0,0 +1,265 @@
+package com.medimate.service;
+
+import com.medimate.model.Patient;
+import com.medimate.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Elder user <-> caretaker links. An elder is linked through the patient record whose email matches
+// theirs (case-insensitively), falling back to a contact number equal to their username. Lookups are
+// cached, including "no caretaker", and misses for a whole batch are resolved with one user and one
+// patient query. User and patient writes invalidate through PrincipalService; the TTL covers writes
+// made on other replicas.
+@Service
+public class CaretakerLinkCache {
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Cached<Link>> byElder = new ConcurrentHashMap<>();
+    private final Map<String, Cached<String>> elderByPatient = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    public static final class Link {
+        private final String caretakerId;
+        private final String patientId;
+        private final String patientName;
+
+        Link(String caretakerId, String patientId, String patientName) {
+            this.caretakerId = caretakerId;
+            this.patientId = patientId;
+            this.patientName = patientName;
+        }
+
+        public String getCaretakerId() { return caretakerId; }
+        public String getPatientId() { return patientId; }
+        public String getPatientName() { return patientName; } // the elder's display name
+    }
+
+    private static final Link NONE = new Link(null, null, null);
+    private static final String NO_ELDER = "";
+
+    private static final class Cached<V> {
+        final V value;
+        final long validUntil;
+
+        Cached(V value, long validUntil) {
+            this.value = value;
+            this.validUntil = validUntil;
+        }
+    }
+
+    public CaretakerLinkCache(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                              @Value("${medimate.caretaker-links.cache-ttl-ms:600000}") long ttlMillis,
+                              @Value("${medimate.caretaker-links.cache-size:50000}") int maxSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.hits = meterRegistry.counter("medimate.caretaker.links.cache", "result", "hit");
+        this.misses = meterRegistry.counter("medimate.caretaker.links.cache", "result", "miss");
+        meterRegistry.gaugeMapSize("medimate.caretaker.links.cache.size", Tags.empty(), byElder);
+    }
+
+    // The elder's caretaker link, or null if they have none
+    public Link caretakerOf(String elderUserId) {
+        return caretakersOf(List.of(elderUserId)).get(elderUserId);
+    }
+
+    // Links for every elder in the batch that has a caretaker
+    public Map<String, Link> caretakersOf(Collection<String> elderUserIds) {
+        long now = System.currentTimeMillis();
+        Map<String, Link> out = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String id : elderUserIds) {
+            if (id == null) continue;
+            Cached<Link> c = byElder.get(id);
+            if (c != null && now < c.validUntil) {
+                hits.increment();
+                if (c.value != NONE) out.put(id, c.value);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return out;
+        misses.increment(missing.size());
+        Map<String, Link> resolved = resolve(missing);
+        if (byElder.size() + missing.size() > maxSize) byElder.clear();
+        for (String id : missing) {
+            Link link = resolved.getOrDefault(id, NONE);
+            byElder.put(id, new Cached<>(link, now + ttlMillis));
+            if (link != NONE) out.put(id, link);
+        }
+        return out;
+    }
+
+    // The elder user behind a patient record (matched by email), or null
+    public String elderOf(String patientId) {
+        return patientId == null ? null : eldersOf(List.of(patientId)).get(patientId);
+    }
+
+    // Elder user ids for every patient record in the batch that has one, resolving misses with one
+    // patient and one user query
+    public Map<String, String> eldersOf(Collection<String> patientIds) {
+        long now = System.currentTimeMillis();
+        Map<String, String> out = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String id : patientIds) {
+            if (id == null) continue;
+            Cached<String> c = elderByPatient.get(id);
+            if (c != null && now < c.validUntil) {
+                hits.increment();
+                if (c.value != NO_ELDER) out.put(id, c.value);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return out;
+        misses.increment(missing.size());
+        Map<String, String> resolved = resolveElders(missing);
+        if (elderByPatient.size() + missing.size() > maxSize) elderByPatient.clear();
+        for (String id : missing) {
+            String elder = resolved.get(id);
+            elderByPatient.put(id, new Cached<>(elder == null ? NO_ELDER : elder, now + ttlMillis));
+            if (elder != null) out.put(id, elder);
+        }
+        return out;
+    }
+
+    // Drops what a write to the user can have changed: their own link, the patient entries that
+    // resolved to them under their old email, and those matching their current email or username
+    public void invalidate(String userId) {
+        if (userId == null) return;
+        byElder.remove(userId);
+        elderByPatient.values().removeIf(c -> userId.equals(c.value));
+
+        Query uq = new Query(where("_id").is(userId));
+        uq.fields().include("email", "username");
+        User u = mongoTemplate.findOne(uq, User.class);
+        if (u == null) return;
+        List<Criteria> matches = new ArrayList<>();
+        if (u.getEmail() != null && !u.getEmail().isBlank()) {
+            matches.add(where("email").in(emailMatchers(List.of(u.getEmail()))));
+        }
+        if (u.getUsername() != null) matches.add(where("contactNumber").is(u.getUsername()));
+        if (matches.isEmpty()) return;
+
+        Query pq = new Query(new Criteria().orOperator(matches));
+        pq.fields().include("_id");
+        for (Patient p : mongoTemplate.find(pq, Patient.class)) elderByPatient.remove(p.getId());
+    }
+
+    // Drops what a write to patient can have changed: its own elder entry and the link of every user
+    // it matches, by email or by a contact number it has now or had before the write. Returns those
+    // users so their principals can be dropped too.
+    public Set<String> invalidatePatient(Patient patient, String formerContactNumber) {
+        if (patient.getId() != null) elderByPatient.remove(patient.getId());
+        List<Criteria> matches = new ArrayList<>();
+        if (patient.getEmail() != null && !patient.getEmail().isBlank()) {
+            matches.add(where("email").in(emailMatchers(List.of(patient.getEmail()))));
+        }
+        Set<String> contacts = new HashSet<>();
+        if (patient.getContactNumber() != null) contacts.add(patient.getContactNumber());
+        if (formerContactNumber != null) contacts.add(formerContactNumber);
+        if (!contacts.isEmpty()) matches.add(where("username").in(contacts));
+        if (matches.isEmpty()) return Set.of();
+
+        Query uq = new Query(new Criteria().orOperator(matches));
+        uq.fields().include("_id");
+        Set<String> users = new HashSet<>();
+        for (User u : mongoTemplate.find(uq, User.class)) {
+            byElder.remove(u.getId());
+            users.add(u.getId());
+        }
+        return users;
+    }
+
+    // Case-insensitive exact matches, the same as the repositories' findByEmailIgnoreCase
+    private static List<Pattern> emailMatchers(Collection<String> emails) {
+        Set<String> distinct = new HashSet<>();
+        for (String e : emails) distinct.add(e.toLowerCase(Locale.ROOT));
+        List<Pattern> patterns = new ArrayList<>();
+        for (String e : distinct) patterns.add(Pattern.compile("^" + Pattern.quote(e) + "$", Pattern.CASE_INSENSITIVE));
+        return patterns;
+    }
+
+    private Map<String, Link> resolve(Set<String> userIds) {
+        Query uq = new Query(where("_id").in(userIds));
+        uq.fields().include("email", "username", "fullName");
+        List<User> users = mongoTemplate.find(uq, User.class);
+        Set<String> emails = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        for (User u : users) {
+            if (u.getEmail() != null) emails.add(u.getEmail());
+            if (u.getUsername() != null) usernames.add(u.getUsername());
+        }
+        if (emails.isEmpty() && usernames.isEmpty()) return Map.of();
+
+        Query pq = new Query(new Criteria().orOperator(where("email").in(emailMatchers(emails)), where("contactNumber").in(usernames)));
+        pq.fields().include("email", "contactNumber", "caretakerId");
+        Map<String, Patient> byEmail = new HashMap<>();
+        Map<String, Patient> byContact = new HashMap<>();
+        for (Patient p : mongoTemplate.find(pq, Patient.class)) {
+            // Prefer a record that actually has a caretaker when several match
+            if (p.getEmail() != null) byEmail.merge(p.getEmail().toLowerCase(Locale.ROOT), p, CaretakerLinkCache::preferAssigned);
+            if (p.getContactNumber() != null) byContact.merge(p.getContactNumber(), p, CaretakerLinkCache::preferAssigned);
+        }
+
+        Map<String, Link> links = new HashMap<>();
+        for (User u : users) {
+            Patient p = u.getEmail() == null ? null : byEmail.get(u.getEmail().toLowerCase(Locale.ROOT));
+            if ((p == null || !assigned(p)) && u.getUsername() != null) {
+                Patient byUsername = byContact.get(u.getUsername());
+                if (byUsername != null && assigned(byUsername)) p = byUsername;
+            }
+            if (p == null || !assigned(p)) continue;
+            links.put(u.getId(), new Link(p.getCaretakerId(), p.getId(),
+                    u.getFullName() != null ? u.getFullName() : u.getUsername()));
+        }
+        return links;
+    }
+
+    private Map<String, String> resolveElders(Set<String> patientIds) {
+        Query pq = new Query(where("_id").in(patientIds));
+        pq.fields().include("email");
+        List<Patient> patients = mongoTemplate.find(pq, Patient.class);
+        Set<String> emails = new HashSet<>();
+        for (Patient p : patients) {
+            if (p.getEmail() != null && !p.getEmail().isBlank()) emails.add(p.getEmail());
+        }
+        if (emails.isEmpty()) return Map.of();
+
+        Query uq = new Query(where("email").in(emailMatchers(emails)));
+        uq.fields().include("_id", "email");
+        Map<String, String> userByEmail = new HashMap<>();
+        for (User u : mongoTemplate.find(uq, User.class)) {
+            if (u.getEmail() != null) userByEmail.putIfAbsent(u.getEmail().toLowerCase(Locale.ROOT), u.getId());
+        }
+        Map<String, String> elders = new HashMap<>();
+        for (Patient p : patients) {
+            if (p.getEmail() == null) continue;
+            String elder = userByEmail.get(p.getEmail().toLowerCase(Locale.ROOT));
+            if (elder != null) elders.put(p.getId(), elder);
+        }
+        return elders;
+    }
+
+    private static boolean assigned(Patient p) {
+        return p.getCaretakerId() != null && !p.getCaretakerId().isEmpty();
+    }
+
+    private static Patient preferAssigned(Patient existing, Patient candidate) {
+        return assigned(existing) ? existing : candidate;
+    }
+}
@@ -0,0 +1,267 @@
+package com.medimate.service;
+
+import com.medimate.model.AuthPrincipal;
+import com.medimate.model.ConversationSequence;
+import com.medimate.model.ConversationSummary;
+import com.medimate.model.Message;
+import com.medimate.model.Notification;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Caretaker <-> elder conversations, keyed by (caretakerId, patientId). Every message gets the next seq
+// of its conversation before it is stored, so a client that remembers the last seq it saw can resume
+// exactly where it left off. New messages and acknowledgements go out as deltas on the conversation's
+// topic (see WebSocketConfig); clients on other replicas catch up with resume.
+// Each conversation also has a ConversationSummary with its latest message and unread counts per side,
+// kept current on every post and read so the inbox never has to scan messages.
+@Service
+public class ConversationService {
+    private static final Logger logger = LoggerFactory.getLogger(ConversationService.class);
+    public static final String CARETAKER = "caretaker";
+    public static final String PATIENT = "patient";
+    public static final int MAX_RESUME = 200;
+    public static final int DEFAULT_PAGE = 50;
+    public static final int MAX_PAGE = 200;
+
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessageSendingOperations broker;
+    private final CaretakerLinkCache caretakerLinks;
+    private final NotificationService notifications;
+
+    public ConversationService(MongoTemplate mongoTemplate, SimpMessageSendingOperations broker,
+                               CaretakerLinkCache caretakerLinks, NotificationService notifications) {
+        this.mongoTemplate = mongoTemplate;
+        this.broker = broker;
+        this.caretakerLinks = caretakerLinks;
+        this.notifications = notifications;
+    }
+
+    // One page of a thread, oldest first; pass before back to get the page preceding it
+    public static final class ThreadPage {
+        private final List<Message> messages;
+        private final String before;
+        private final boolean hasMore;
+
+        ThreadPage(List<Message> messages, String before, boolean hasMore) {
+            this.messages = messages;
+            this.before = before;
+            this.hasMore = hasMore;
+        }
+
+        public List<Message> getMessages() { return messages; }
+        public String getBefore() { return before; } // null once the start of the thread is reached
+        public boolean isHasMore() { return hasMore; }
+    }
+
+    public static String topic(String caretakerId, String patientId) {
+        return "/topic/conversations." + caretakerId + "." + patientId;
+    }
+
+    // Which side of the conversation the user is on, or null if they aren't part of it
+    public static String sideOf(AuthPrincipal principal, String caretakerId, String patientId) {
+        if (principal == null || caretakerId == null || patientId == null) return null;
+        if (caretakerId.equals(principal.getId()) && principal.getPatientIds().contains(patientId)) return CARETAKER;
+        if (patientId.equals(principal.getPatientId()) && caretakerId.equals(principal.getCaretakerId())) return PATIENT;
+        return null;
+    }
+
+    // Stores m (caretakerId, patientId and sender already set) as the conversation's next message
+    public Message post(Message m) {
+        m.setId(null);
+        if (m.getCreatedAt() == null) m.setCreatedAt(LocalDateTime.now());
+        m.setSeq(nextSeq(m.getCaretakerId(), m.getPatientId()));
+        Message saved = mongoTemplate.save(m);
+
+        updateSummary(saved);
+        publish(saved.getCaretakerId(), saved.getPatientId(), event("message", "message", saved));
+        if (CARETAKER.equals(saved.getSender())) mirrorToElder(saved);
+        return saved;
+    }
+
+    // Messages after afterSeq, oldest first, at most MAX_RESUME of them
+    public List<Message> since(String caretakerId, String patientId, long afterSeq) {
+        Query q = new Query(where("caretakerId").is(caretakerId).and("patientId").is(patientId).and("seq").gt(afterSeq))
+                .with(Sort.by(Sort.Direction.ASC, "seq")).limit(MAX_RESUME);
+        return mongoTemplate.find(q, Message.class);
+    }
+
+    // The newest limit messages older than the before cursor (or the newest of all without one), read
+    // backwards along the conversation_createdAt index so every page costs the same however long the
+    // thread has grown
+    public ThreadPage page(String caretakerId, String patientId, String before, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE));
+        Criteria criteria = where("caretakerId").is(caretakerId).and("patientId").is(patientId);
+        KeysetCursor cursor = KeysetCursor.parse(before, "before");
+        if (cursor != null) {
+            criteria = cursor.before(criteria, "createdAt");
+        } else {
+            criteria = criteria.and("createdAt").ne(null);
+        }
+        Query q = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(size + 1);
+        List<Message> page = new ArrayList<>(mongoTemplate.find(q, Message.class));
+        boolean hasMore = page.size() > size;
+        if (hasMore) page = page.subList(0, size);
+        Collections.reverse(page);
+        String next = hasMore ? KeysetCursor.of(page.get(0).getCreatedAt(), page.get(0).getId()).toString() : null;
+        return new ThreadPage(page, next, hasMore);
+    }
+
+    // The side has received everything up to seq; acks only ever move forward
+    public void ack(String caretakerId, String patientId, String side, long seq) {
+        String field = CARETAKER.equals(side) ? "caretakerAck" : "patientAck";
+        mongoTemplate.upsert(new Query(where("_id").is(ConversationSequence.keyFor(caretakerId, patientId))),
+                new Update().max(field, seq), ConversationSequence.class);
+        Map<String, Object> event = event("ack", "side", side);
+        event.put("seq", seq);
+        publish(caretakerId, patientId, event);
+    }
+
+    // side has read the conversation: clears its unread count and flags the other side's messages read
+    public long markRead(String caretakerId, String patientId, String side) {
+        String key = ConversationSequence.keyFor(caretakerId, patientId);
+        mongoTemplate.updateFirst(new Query(where("_id").is(key)),
+                new Update().set(CARETAKER.equals(side) ? "unreadForCaretaker" : "unreadForPatient", 0), ConversationSummary.class);
+        Query unread = new Query(where("caretakerId").is(caretakerId).and("patientId").is(patientId).and("read").ne(true));
+        if (CARETAKER.equals(side)) unread.addCriteria(where("sender").ne(CARETAKER));
+        else unread.addCriteria(where("sender").is(CARETAKER));
+        long modified = mongoTemplate.updateMulti(unread, new Update().set("read", true), Message.class).getModifiedCount();
+        publish(caretakerId, patientId, event("read", "side", side));
+        return modified;
+    }
+
+    private void updateSummary(Message m) {
+        Query byId = new Query(where("_id").is(ConversationSequence.keyFor(m.getCaretakerId(), m.getPatientId())));
+        Update counts = new Update()
+                .setOnInsert("caretakerId", m.getCaretakerId())
+                .setOnInsert("patientId", m.getPatientId())
+                .setOnInsert("lastSeq", 0L)
+                .inc(CARETAKER.equals(m.getSender()) ? "unreadForPatient" : "unreadForCaretaker", 1);
+        if (m.getPatientName() != null) counts.set("patientName", m.getPatientName());
+        mongoTemplate.upsert(byId, counts, ConversationSummary.class);
+        // Posts can finish out of order; only a newer message may replace the preview
+        mongoTemplate.updateFirst(byId.addCriteria(where("lastSeq").lt(m.getSeq())), new Update()
+                .set("lastMessage", m.getContent())
+                .set("lastSender", m.getSender())
+                .set("lastAt", m.getCreatedAt())
+                .set("lastSeq", m.getSeq()), ConversationSummary.class);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSummariesIfEmpty() {
+        try {
+            if (mongoTemplate.estimatedCount(ConversationSummary.class) > 0) return;
+            if (mongoTemplate.estimatedCount(Message.class) == 0) return;
+            logger.info("Conversation summaries are empty, building them from existing messages");
+            backfillSummaries();
+        } catch (Exception e) {
+            logger.warn("Conversation summary backfill failed: {}", e.getMessage());
+        }
+    }
+
+    // Rebuilds every summary from the messages in one server-side aggregation
+    public void backfillSummaries() {
+        long started = System.currentTimeMillis();
+        Document unread = new Document("$ne", List.of("$read", true));
+        Document fromCaretaker = new Document("$eq", List.of("$sender", CARETAKER));
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("caretakerId", new Document("$type", "string"))
+                        .append("patientId", new Document("$type", "string"))),
+                new Document("$sort", new Document("createdAt", -1)),
+                new Document("$group", new Document("_id", new Document("c", "$caretakerId").append("p", "$patientId"))
+                        .append("patientName", new Document("$max", "$patientName"))
+                        .append("lastMessage", new Document("$first", "$content"))
+                        .append("lastSender", new Document("$first", "$sender"))
+                        .append("lastAt", new Document("$first", "$createdAt"))
+                        .append("lastSeq", new Document("$max", new Document("$ifNull", List.of("$seq", 0L))))
+                        .append("unreadForCaretaker", countWhere(List.of(unread, new Document("$not", List.of(fromCaretaker)))))
+                        .append("unreadForPatient", countWhere(List.of(unread, fromCaretaker)))),
+                new Document("$project", new Document("_id", new Document("$concat", List.of("$_id.c", ":", "$_id.p")))
+                        .append("caretakerId", "$_id.c")
+                        .append("patientId", "$_id.p")
+                        .append("patientName", 1)
+                        .append("lastMessage", 1)
+                        .append("lastSender", 1)
+                        .append("lastAt", 1)
+                        .append("lastSeq", 1)
+                        .append("unreadForCaretaker", 1)
+                        .append("unreadForPatient", 1)),
+                new Document("$merge", new Document("into", mongoTemplate.getCollectionName(ConversationSummary.class))
+                        .append("on", "_id")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert"))
+        );
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Message.class))
+                .aggregate(pipeline).allowDiskUse(true).toCollection();
+        logger.info("Conversation summaries rebuilt in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private static Document countWhere(List<Document> conditions) {
+        return new Document("$sum", new Document("$cond", List.of(new Document("$and", conditions), 1, 0)));
+    }
+
+    private long nextSeq(String caretakerId, String patientId) {
+        ConversationSequence s = mongoTemplate.findAndModify(
+                new Query(where("_id").is(ConversationSequence.keyFor(caretakerId, patientId))),
+                new Update().inc("seq", 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                ConversationSequence.class);
+        return s.getSeq();
+    }
+
+    private void publish(String caretakerId, String patientId, Map<String, Object> event) {
+        try {
+            broker.convertAndSend(topic(caretakerId, patientId), event);
+        } catch (Exception e) {
+            // The message is stored either way; clients catch up with resume
+            logger.warn("Could not publish to conversation {}/{}: {}", caretakerId, patientId, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> event(String type, String key, Object value) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", type);
+        event.put(key, value);
+        return event;
+    }
+
+    // Elders without a live conversation still see caretaker messages among their notifications
+    private void mirrorToElder(Message m) {
+        try {
+            String elderUserId = caretakerLinks.elderOf(m.getPatientId());
+            if (elderUserId == null) return;
+            Notification n = new Notification();
+            n.setId(null);
+            n.setUserId(elderUserId);
+            n.setTitle("New message from caretaker");
+            n.setMessage(m.getContent() != null ? m.getContent() : "");
+            n.setType("MESSAGE");
+            n.setIcon("✉️");
+            n.setColor("#3b82f6");
+            n.setRead(false);
+            n.setCreatedAt(LocalDateTime.now());
+            notifications.enqueue(n);
+        } catch (Exception ignore) {}
+    }
+}
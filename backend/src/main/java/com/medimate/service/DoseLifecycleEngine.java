@@ -0,0 +1,575 @@
+package com.medimate.service;
+
+import com.medimate.model.DoseEvent;
+import com.medimate.model.DoseSchedule;
+import com.medimate.model.Medication;
+import com.medimate.model.MedicationLog;
+import com.medimate.model.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Single owner of the dose lifecycle. Each scheduled slot is written once per day as a DoseEvent plus a
+// MedicationLog sharing the same (medicationId, dueAt) id, and missed-dose handling for both projections
+// runs off the dose_events collection alone. Pending deadlines live in an in-memory timing wheel that
+// fires at the exact deadline; the database sweep only runs occasionally as a checkpoint.
+// With several replicas, generation, the sweep and deadline loading only cover the userId shards this
+// replica holds a lease on. Transitions claim the documents they flip, so a deadline that fires on two
+// replicas during a hand-over still produces one alert.
+@Service
+public class DoseLifecycleEngine {
+    private static final Logger logger = LoggerFactory.getLogger(DoseLifecycleEngine.class);
+    private static final int BULK_SIZE = 1000;
+    private static final int LOG_GRACE_MINUTES = 5;
+    private static final int DOSE_GRACE_MINUTES = 10;
+    private static final DateTimeFormatter ALERT_TIME = DateTimeFormatter.ofPattern("hh:mm a");
+    private static final int[] WHEEL_LEVELS = {60, 60, 24, 8}; // 1s ticks: seconds, minutes, hours, days
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationAggregator alerts;
+    private final ExecutorService workers;
+    private final int partitions;
+    private final Timer sweepTimer;
+    private final Counter missedDoses;
+    private final Counter missedLogs;
+    private final TimingWheel<String> logDeadlines;
+    private final TimingWheel<String> doseDeadlines;
+    private final ScheduledExecutorService ticker;
+    private final ShardLeaseManager leases;
+    private final CaretakerLinkCache caretakerLinks;
+    private final AdherenceRollupService adherence;
+
+    @Value("${medimate.doses.sweep-page-size:500}")
+    private int pageSize;
+
+    @Value("${medimate.doses.reconcile-interval-ms:900000}")
+    private long reconcileIntervalMillis;
+
+    // How long an alert claim may go unconfirmed before another pass takes it over and re-sends
+    @Value("${medimate.doses.alert-retry-ms:600000}")
+    private long alertRetryMillis;
+
+    private final Consumer<Collection<String>> alertsWritten = this::markAlertsSent;
+
+    public DoseLifecycleEngine(MongoTemplate mongoTemplate, NotificationAggregator alerts,
+                               MeterRegistry meterRegistry, ShardLeaseManager leases,
+                               CaretakerLinkCache caretakerLinks, AdherenceRollupService adherence,
+                               @Value("${medimate.doses.generator-threads:4}") int threads,
+                               @Value("${medimate.doses.generator-partitions:16}") int partitions) {
+        this.mongoTemplate = mongoTemplate;
+        this.alerts = alerts;
+        this.leases = leases;
+        this.caretakerLinks = caretakerLinks;
+        this.adherence = adherence;
+        this.partitions = partitions;
+        this.sweepTimer = meterRegistry.timer("medimate.doses.missed.sweep");
+        this.missedDoses = meterRegistry.counter("medimate.doses.missed.marked");
+        this.missedLogs = meterRegistry.counter("medimate.doses.logs.missed.marked");
+        long now = System.currentTimeMillis();
+        this.logDeadlines = new TimingWheel<>(1000, WHEEL_LEVELS, now);
+        this.doseDeadlines = new TimingWheel<>(1000, WHEEL_LEVELS, now);
+        meterRegistry.gauge("medimate.doses.deadlines.pending", doseDeadlines, TimingWheel::size);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dose-deadlines");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "dose-generator-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDeadlineClock() {
+        ticker.scheduleAtFixedRate(this::fireDueDeadlines, 1, 1, TimeUnit.SECONDS);
+    }
+
+    // A newly leased shard brings its pending deadlines into our wheel, and its doses for today if the
+    // previous owner never got to generate them. Doses already overdue by more than one reconcile
+    // interval are left to the checkpoint sweep, so old unresolved history never lands in the wheel.
+    // Timers for shards we lost are left to fire; the transitions are claimed, so they're harmless.
+    @EventListener
+    public void shardsChanged(ShardLeaseManager.ShardsChanged event) {
+        Set<Integer> gained = event.getGained();
+        if (gained.isEmpty()) return;
+        LocalDateTime horizon = LocalDateTime.now().minusMinutes(DOSE_GRACE_MINUTES).minus(reconcileIntervalMillis, ChronoUnit.MILLIS);
+        Query q = new Query(new Criteria().andOperator(
+                where("status").is("PENDING").and("dueAt").gte(horizon).lt(LocalDate.now().plusDays(1).atStartOfDay()),
+                ShardLeaseManager.usersIn("userId", gained)));
+        q.fields().include("dueAt", "logMissed");
+        q.cursorBatchSize(BULK_SIZE);
+        int loaded = 0;
+        try (Stream<DoseEvent> pending = mongoTemplate.stream(q, DoseEvent.class)) {
+            for (DoseEvent d : (Iterable<DoseEvent>) pending::iterator) {
+                scheduleDeadlines(d.getId(), d.getDueAt(), !d.isLogMissed());
+                loaded++;
+            }
+        }
+        logger.info("Loaded {} pending dose deadlines for shards {}", loaded, gained);
+
+        catchUpGeneration(gained);
+    }
+
+    // ========== GENERATION ==========
+
+    public static final class GenerationResult {
+        private final int created;
+        private final int failedPartitions;
+
+        GenerationResult(int created, int failedPartitions) {
+            this.created = created;
+            this.failedPartitions = failedPartitions;
+        }
+
+        public int getCreated() { return created; }
+        public int getFailedPartitions() { return failedPartitions; }
+        public boolean isComplete() { return failedPartitions == 0; }
+    }
+
+    // Run at midnight every day, for the shards this replica holds
+    @Scheduled(cron = "0 0 0 * * *")
+    public void generateDailyDoses() {
+        catchUpGeneration(leases.ownedShards());
+    }
+
+    // Generates today's doses for whichever of the shards haven't had them yet. A shard only counts as
+    // generated once every partition succeeded; otherwise the next checkpoint sweep tries again.
+    private void catchUpGeneration(Set<Integer> shards) {
+        LocalDate today = LocalDate.now();
+        Set<Integer> behind = leases.pendingGeneration(shards, today);
+        if (behind.isEmpty()) return;
+        if (generateDosesForDate(today, behind).isComplete()) {
+            leases.markGenerated(behind, today);
+        }
+    }
+
+    // Safe to re-run: both projections are upserted on a (medicationId, dueAt) key, so existing
+    // entries (and their status) are left untouched.
+    public GenerationResult generateDosesForDate(LocalDate date) {
+        Set<Integer> all = new TreeSet<>();
+        for (int s = 0; s < ShardLeaseManager.SHARDS; s++) all.add(s);
+        return generateDosesForDate(date, all);
+    }
+
+    private GenerationResult generateDosesForDate(LocalDate date, Set<Integer> shards) {
+        long start = System.currentTimeMillis();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (Criteria range : userIdPartitions(ShardLeaseManager.usersIn("userId", shards))) {
+            results.add(workers.submit(() -> generatePartition(range, date)));
+        }
+        int created = 0;
+        int failed = 0;
+        for (Future<Integer> f : results) {
+            try {
+                created += f.get();
+            } catch (Exception e) {
+                // One failed partition shouldn't hide the others; a re-run fills the gap
+                failed++;
+                logger.error("Dose generation partition failed for {}", date, e);
+            }
+        }
+        if (failed > 0) {
+            logger.warn("Dose generation for {} (shards {}) incomplete: {} of {} partitions failed, {} doses created",
+                    date, shards, failed, results.size(), created);
+        } else {
+            logger.info("Daily dose generation completed for {} (shards {}): {} doses created across {} partitions ({} ms)",
+                    date, shards, created, results.size(), System.currentTimeMillis() - start);
+        }
+        return new GenerationResult(created, failed);
+    }
+
+    // Seed today's remaining doses for a newly created or assigned medication
+    public int generateDosesForMedication(Medication m) {
+        DoseBatch batch = new DoseBatch(LocalDate.now(), true);
+        batch.add(m);
+        return batch.flush();
+    }
+
+    private static Criteria activeMedications() {
+        return where("active").is(true).and("schedule").nin(null, "");
+    }
+
+    // Splits the shards' active medications into roughly equal userId ranges using $bucketAuto
+    private List<Criteria> userIdPartitions(Criteria shards) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(activeMedications(), shards)),
+                Aggregation.bucketAuto("userId", partitions));
+        List<Document> buckets = mongoTemplate.aggregate(agg, Medication.class, Document.class).getMappedResults();
+        List<Criteria> ranges = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            Document bounds = buckets.get(i).get("_id", Document.class);
+            Criteria range = where("userId").gte(bounds.get("min"));
+            // Bucket bounds are [min, max) except the last one, whose max is inclusive
+            range = i == buckets.size() - 1 ? range.lte(bounds.get("max")) : range.lt(bounds.get("max"));
+            ranges.add(new Criteria().andOperator(activeMedications(), shards, range));
+        }
+        return ranges;
+    }
+
+    private int generatePartition(Criteria range, LocalDate date) {
+        Query q = new Query(range);
+        q.fields().include("userId", "name", "dosage", "schedule", "scheduleMinutes");
+        q.cursorBatchSize(BULK_SIZE);
+        DoseBatch batch = new DoseBatch(date, false);
+        try (Stream<Medication> meds = mongoTemplate.stream(q, Medication.class)) {
+            meds.forEach(batch::add);
+        }
+        return batch.flush();
+    }
+
+    // Index of the first slot to generate. The daily and catch-up runs take every slot of the day, so
+    // ones that have already passed are still created and then marked missed by their deadlines;
+    // seeding a new medication skips them, since the patient can't have been expected to take them.
+    static int firstSlot(int[] minutes, LocalDate date, LocalDateTime now, boolean futureOnly) {
+        if (!futureOnly) return 0;
+        LocalDate today = now.toLocalDate();
+        if (date.isBefore(today)) return minutes.length;
+        if (date.isAfter(today)) return 0;
+        return DoseSchedule.firstSlotFrom(minutes, now.getHour() * 60 + now.getMinute() + 1);
+    }
+
+    // Collects upserts for both projections and writes them as unordered bulk operations
+    private class DoseBatch {
+        private final LocalDate date;
+        private final boolean futureOnly;
+        private final LocalDateTime now = LocalDateTime.now();
+        private BulkOperations doseOps;
+        private BulkOperations logOps;
+        private final List<String> keys = new ArrayList<>();
+        private final List<LocalDateTime> dueTimes = new ArrayList<>();
+        private int created;
+
+        DoseBatch(LocalDate date, boolean futureOnly) {
+            this.date = date;
+            this.futureOnly = futureOnly;
+        }
+
+        void add(Medication m) {
+            if (!m.isActive()) return;
+            int[] minutes = m.getScheduleMinutes();
+            int first = firstSlot(minutes, date, now, futureOnly);
+            for (int i = first; i < minutes.length; i++) {
+                upsert(m, date.atStartOfDay().plusMinutes(minutes[i]));
+            }
+        }
+
+        private void upsert(Medication m, LocalDateTime dueAt) {
+            if (doseOps == null) {
+                doseOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DoseEvent.class);
+                logOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MedicationLog.class);
+            }
+            String id = DoseEvent.keyFor(m.getId(), dueAt);
+            keys.add(id);
+            dueTimes.add(dueAt);
+            Query key = new Query(where("_id").is(id));
+            doseOps.upsert(key, new Update()
+                    .setOnInsert("userId", m.getUserId())
+                    .setOnInsert("medicationId", m.getId())
+                    .setOnInsert("medName", m.getName())
+                    .setOnInsert("dosage", m.getDosage())
+                    .setOnInsert("dueAt", dueAt)
+                    .setOnInsert("status", "PENDING")
+                    .setOnInsert("updatedAt", now));
+            logOps.upsert(key, new Update()
+                    .setOnInsert("userId", m.getUserId())
+                    .setOnInsert("medicationId", m.getId())
+                    .setOnInsert("medicationName", m.getName())
+                    .setOnInsert("scheduledTime", dueAt)
+                    .setOnInsert("status", "PENDING"));
+            if (keys.size() >= BULK_SIZE) flush();
+        }
+
+        int flush() {
+            if (!keys.isEmpty()) {
+                List<BulkWriteUpsert> inserted = doseOps.execute().getUpserts();
+                logOps.execute();
+                // Only newly created doses need timers; existing ones were scheduled when they were created
+                for (BulkWriteUpsert u : inserted) {
+                    scheduleDeadlines(keys.get(u.getIndex()), dueTimes.get(u.getIndex()), true);
+                }
+                created += inserted.size();
+                doseOps = null;
+                logOps = null;
+                keys.clear();
+                dueTimes.clear();
+            }
+            return created;
+        }
+    }
+
+    // ========== MISSED DOSES ==========
+
+    // Two deadlines per dose: after 5 minutes the medication log is marked missed, after 10 the dose itself
+    private void scheduleDeadlines(String doseId, LocalDateTime dueAt, boolean includeLog) {
+        long due = dueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (includeLog) logDeadlines.schedule(doseId, due + TimeUnit.MINUTES.toMillis(LOG_GRACE_MINUTES));
+        doseDeadlines.schedule(doseId, due + TimeUnit.MINUTES.toMillis(DOSE_GRACE_MINUTES));
+    }
+
+    private void cancelDeadlines(String doseId) {
+        logDeadlines.cancel(doseId);
+        doseDeadlines.cancel(doseId);
+    }
+
+    // Runs every second on the ticker thread; a failure must not cancel the schedule
+    private void fireDueDeadlines() {
+        try {
+            long now = System.currentTimeMillis();
+            List<String> logs = logDeadlines.advance(now);
+            List<String> doses = doseDeadlines.advance(now);
+            int marked = 0;
+            for (int i = 0; i < logs.size(); i += pageSize) {
+                List<String> chunk = logs.subList(i, Math.min(logs.size(), i + pageSize));
+                marked += (int) markLogsMissed(mongoTemplate.find(overdueById(chunk).addCriteria(where("logMissed").ne(true)), DoseEvent.class));
+            }
+            missedLogs.increment(marked);
+            marked = 0;
+            for (int i = 0; i < doses.size(); i += pageSize) {
+                List<String> chunk = doses.subList(i, Math.min(doses.size(), i + pageSize));
+                marked += (int) markDosesMissed(mongoTemplate.find(overdueById(chunk), DoseEvent.class));
+            }
+            missedDoses.increment(marked);
+        } catch (Exception e) {
+            logger.error("Dose deadline processing failed", e);
+        }
+    }
+
+    private static Query overdueById(List<String> ids) {
+        Query q = new Query(where("_id").in(ids).and("status").is("PENDING"));
+        q.fields().include("userId", "medicationId", "medName", "dosage", "dueAt");
+        return q;
+    }
+
+    // Checkpoint sweep that catches anything the wheel didn't: doses written by another process,
+    // deadlines lost to a restart between load and fire, or a failed deadline batch. Reads each phase
+    // off the (status, dueAt) index; each phase flips what it reads, so re-reading the head of its
+    // range walks the whole overdue set in bounded pages.
+    @Scheduled(fixedDelayString = "${medimate.doses.reconcile-interval-ms:900000}",
+               initialDelayString = "${medimate.doses.reconcile-interval-ms:900000}")
+    public void markMissedDoses() {
+        Set<Integer> shards = leases.ownedShards();
+        if (shards.isEmpty()) return;
+        try {
+            catchUpGeneration(shards);
+        } catch (Exception e) {
+            logger.error("Dose generation catch-up failed", e);
+        }
+        Criteria owned = ShardLeaseManager.usersIn("userId", shards);
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int logs = sweep(new Criteria().andOperator(owned, where("status").is("PENDING").and("logMissed").ne(true)
+                .and("dueAt").lt(now.minusMinutes(LOG_GRACE_MINUTES))), this::markLogsMissed);
+        int doses = sweep(new Criteria().andOperator(owned, where("status").is("PENDING")
+                .and("dueAt").lt(now.minusMinutes(DOSE_GRACE_MINUTES))), this::markDosesMissed);
+        // Alerts claimed by a pass that never confirmed them written (it died, or the write was dropped).
+        // Older than yesterday they aren't worth sending any more.
+        int realerted = sweep(new Criteria().andOperator(owned, where("status").in("PENDING", "MISSED")
+                .and("dueAt").gte(now.toLocalDate().minusDays(1).atStartOfDay()).lt(now)
+                .and("alertedBy").ne(null).and("alertSent").ne(true)
+                .and("alertClaimedAt").lt(now.minus(alertRetryMillis, ChronoUnit.MILLIS))), this::alertCaretakers);
+        if (realerted > 0) logger.warn("Re-sent {} missed-dose alerts that were never confirmed written", realerted);
+        long elapsed = System.nanoTime() - start;
+        sweepTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        missedLogs.increment(logs);
+        missedDoses.increment(doses);
+        if (logs + doses > 0) {
+            logger.info("Missed-dose checkpoint sweep marked {} logs and {} doses ({} ms)",
+                    logs, doses, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    private interface PageHandler {
+        long apply(List<DoseEvent> page);
+    }
+
+    private int sweep(Criteria overdue, PageHandler handler) {
+        int processed = 0;
+        while (true) {
+            Query q = new Query(overdue).with(Sort.by(Sort.Direction.ASC, "dueAt")).limit(pageSize);
+            q.fields().include("userId", "medicationId", "medName", "dosage", "dueAt");
+            List<DoseEvent> page = mongoTemplate.find(q, DoseEvent.class);
+            if (page.isEmpty()) break;
+            long modified = handler.apply(page);
+            processed += page.size();
+            // Nothing flipped means the same page would come back again; leave it to the next run.
+            if (page.size() < pageSize || modified == 0) break;
+        }
+        return processed;
+    }
+
+    private long markLogsMissed(List<DoseEvent> page) {
+        if (page.isEmpty()) return 0;
+        String claim = UUID.randomUUID().toString();
+        long modified = mongoTemplate.updateMulti(new Query(where("_id").in(ids(page)).and("logMissed").ne(true)),
+                new Update().set("logMissed", true).set("logMissedBy", claim), DoseEvent.class).getModifiedCount();
+        if (modified == 0) return 0;
+        Set<String> claimed = claimedIds("logMissedBy", page, claim);
+        // Only logs still pending get an alert; doses without a log (pre-engine data) are just closed off
+        Query pending = new Query(where("_id").in(claimed).and("status").is("PENDING"));
+        pending.fields().include("_id");
+        Set<String> open = mongoTemplate.find(pending, MedicationLog.class).stream()
+                .map(MedicationLog::getId).collect(Collectors.toSet());
+        if (!open.isEmpty()) {
+            mongoTemplate.updateMulti(new Query(where("_id").in(open).and("status").is("PENDING")),
+                    new Update().set("status", "MISSED"), MedicationLog.class);
+        }
+
+        alertCaretakers(page.stream().filter(d -> open.contains(d.getId())).collect(Collectors.toList()));
+        return modified;
+    }
+
+    private long markDosesMissed(List<DoseEvent> page) {
+        if (page.isEmpty()) return 0;
+        String claim = UUID.randomUUID().toString();
+        // Still guarded on PENDING so a dose taken since the read is left alone
+        long modified = mongoTemplate.updateMulti(new Query(where("_id").in(ids(page)).and("status").is("PENDING")),
+                new Update().set("status", "MISSED").set("missedBy", claim).set("updatedAt", LocalDateTime.now()),
+                DoseEvent.class).getModifiedCount();
+        if (modified == 0) return 0;
+        Set<String> claimed = claimedIds("missedBy", page, claim);
+        mongoTemplate.updateMulti(new Query(where("_id").in(claimed).and("status").is("PENDING")),
+                new Update().set("status", "MISSED"), MedicationLog.class);
+
+        List<DoseEvent> missed = page.stream().filter(d -> claimed.contains(d.getId())).collect(Collectors.toList());
+        adherence.apply(missed, "PENDING", "MISSED");
+        alertCaretakers(missed);
+        return modified;
+    }
+
+    // Both phases reach the same dose (the log deadline first, the dose deadline a few minutes later), so
+    // the caretaker alert is keyed on the dose: whichever phase claims alertedBy first sends it, on one
+    // replica. The aggregator then folds a patient's doses missed together into one digest. The claim
+    // only becomes final (alertSent) once the outbox has stored the notification; until then a claim
+    // older than alert-retry-ms can be taken over, so a crash in between re-sends instead of losing it.
+    private long alertCaretakers(List<DoseEvent> missed) {
+        if (missed.isEmpty()) return 0;
+        Map<String, CaretakerLinkCache.Link> links = caretakerLinks.caretakersOf(userIds(missed));
+        List<DoseEvent> alertable = missed.stream().filter(d -> links.containsKey(d.getUserId())).collect(Collectors.toList());
+        if (alertable.isEmpty()) return 0;
+        LocalDateTime now = LocalDateTime.now();
+        String claim = UUID.randomUUID().toString();
+        Criteria claimable = new Criteria().orOperator(where("alertedBy").is(null),
+                where("alertClaimedAt").lt(now.minus(alertRetryMillis, ChronoUnit.MILLIS)));
+        long modified = mongoTemplate.updateMulti(
+                new Query(new Criteria().andOperator(where("_id").in(ids(alertable)).and("alertSent").ne(true), claimable)),
+                new Update().set("alertedBy", claim).set("alertClaimedAt", now), DoseEvent.class).getModifiedCount();
+        if (modified == 0) return 0;
+        Set<String> claimed = claimedIds("alertedBy", alertable, claim);
+        for (DoseEvent d : alertable) {
+            if (!claimed.contains(d.getId())) continue;
+            CaretakerLinkCache.Link link = links.get(d.getUserId());
+            String medName = d.getMedName() == null ? "Medication" : d.getMedName();
+            String time = d.getDueAt().format(ALERT_TIME);
+            Notification alert = notification(link.getCaretakerId(), "MEDICATION_MISSED", "Medication Missed",
+                    String.format("Patient %s missed medication: %s (scheduled at %s)", link.getPatientName(), medName, time),
+                    "⚠️");
+            alerts.offer(alert, link.getPatientId(), link.getPatientName(), d.getId(), medName + " at " + time, alertsWritten);
+        }
+        return modified;
+    }
+
+    // Called from the outbox writer once the alert (or the digest carrying it) is stored
+    private void markAlertsSent(Collection<String> doseIds) {
+        mongoTemplate.updateMulti(new Query(where("_id").in(doseIds)), new Update().set("alertSent", true), DoseEvent.class);
+    }
+
+    private static List<String> ids(List<DoseEvent> page) {
+        return page.stream().map(DoseEvent::getId).collect(Collectors.toList());
+    }
+
+    private static Set<String> userIds(List<DoseEvent> page) {
+        return page.stream().map(DoseEvent::getUserId).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    // The ids in page that this call's update flipped, as opposed to another replica's
+    private Set<String> claimedIds(String field, List<DoseEvent> page, String claim) {
+        Query q = new Query(where("_id").in(ids(page)).and(field).is(claim));
+        q.fields().include("_id");
+        return mongoTemplate.find(q, DoseEvent.class).stream().map(DoseEvent::getId).collect(Collectors.toSet());
+    }
+
+    private static Notification notification(String caretakerId, String type, String title, String message, String icon) {
+        Notification n = new Notification();
+        n.setUserId(caretakerId);
+        n.setType(type);
+        n.setTitle(title);
+        n.setMessage(message);
+        n.setIcon(icon);
+        n.setColor("#ef4444");
+        n.setCreatedAt(LocalDateTime.now());
+        n.setRead(false);
+        return n;
+    }
+
+    // ========== STATUS SYNC ==========
+
+    // The elder acted on a dose: flips it, keeps the medication log and adherence rollups in step and
+    // returns the dose as it is now, or null if it isn't theirs
+    public DoseEvent updateStatus(String doseId, String userId, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        DoseEvent before = mongoTemplate.findAndModify(new Query(where("_id").is(doseId).and("userId").is(userId)),
+                new Update().set("status", status).set("updatedAt", now), DoseEvent.class);
+        if (before == null) return null;
+        cancelDeadlines(doseId);
+        Update u = new Update().set("status", status);
+        if ("TAKEN".equals(status)) u.set("takenTime", now);
+        mongoTemplate.updateFirst(new Query(where("_id").is(doseId)), u, MedicationLog.class);
+        adherence.transition(before, before.getStatus(), status);
+
+        before.setStatus(status);
+        before.setUpdatedAt(now);
+        return before;
+    }
+
+    // ...and the dose in step when it is taken from the medication list
+    public void logTaken(MedicationLog log) {
+        cancelDeadlines(log.getId());
+        DoseEvent before = mongoTemplate.findAndModify(new Query(where("_id").is(log.getId())),
+                new Update().set("status", "TAKEN").set("updatedAt", log.getTakenTime()), DoseEvent.class);
+        if (before != null) adherence.transition(before, before.getStatus(), "TAKEN");
+    }
+}
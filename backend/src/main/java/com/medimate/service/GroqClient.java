@@ -0,0 +1,200 @@
+package com.medimate.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The one Groq chat-completions client. Calls go out with sendAsync on a shared HttpClient, so no
+// request thread waits on the model. In front of each call:
+// - a bulkhead caps calls in flight;
+// - a token bucket holds us to the provider's requests-per-minute quota;
+// - a circuit breaker stops calling for open-ms after failure-threshold failures in a row, then lets a
+//   single trial call through to decide whether to close again.
+// Calls turned away by any of these fail at once with Unavailable; callers fall back from there.
+@Service
+public class GroqClient {
+    private static final Logger logger = LoggerFactory.getLogger(GroqClient.class);
+
+    private final HttpClient httpClient;
+    private final Gson gson = new Gson();
+    private final String apiKey;
+    private final String apiUrl;
+    private final String model;
+    private final Duration requestTimeout;
+    private final Semaphore inFlight;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter rejected;
+
+    // Token bucket, guarded by this
+    private final double bucketSize;
+    private final double tokensPerMilli;
+    private double tokens;
+    private long refilledAt;
+
+    // Circuit breaker
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private volatile long openUntil; // 0 while closed
+
+    // Turned away before reaching Groq: not configured, over quota, too many in flight or circuit open
+    public static class Unavailable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public Unavailable(String message) {
+            super(message);
+        }
+    }
+
+    public GroqClient(MeterRegistry meterRegistry,
+                      @Value("${groq.api.key:}") String apiKey,
+                      @Value("${groq.api.url:https://api.groq.com/openai/v1/chat/completions}") String apiUrl,
+                      @Value("${groq.model:llama-3.1-8b-instant}") String model,
+                      @Value("${medimate.ai.connect-timeout-ms:2000}") long connectTimeoutMillis,
+                      @Value("${medimate.ai.request-timeout-ms:10000}") long requestTimeoutMillis,
+                      @Value("${medimate.ai.max-concurrent:8}") int maxConcurrent,
+                      @Value("${medimate.ai.requests-per-minute:30}") int requestsPerMinute,
+                      @Value("${medimate.ai.burst:10}") int burst,
+                      @Value("${medimate.ai.failure-threshold:5}") int failureThreshold,
+                      @Value("${medimate.ai.open-ms:30000}") long openMillis) {
+        this.apiKey = apiKey;
+        this.apiUrl = apiUrl;
+        this.model = model;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(connectTimeoutMillis)).build();
+        this.inFlight = new Semaphore(Math.max(1, maxConcurrent));
+        this.bucketSize = Math.max(1, burst);
+        this.tokensPerMilli = Math.max(1, requestsPerMinute) / 60000.0;
+        this.tokens = bucketSize;
+        this.refilledAt = System.currentTimeMillis();
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.succeeded = meterRegistry.counter("medimate.ai.requests", "result", "ok");
+        this.failed = meterRegistry.counter("medimate.ai.requests", "result", "error");
+        this.rejected = meterRegistry.counter("medimate.ai.requests", "result", "rejected");
+        meterRegistry.gauge("medimate.ai.in-flight", inFlight, s -> Math.max(1, maxConcurrent) - s.availablePermits());
+        meterRegistry.gauge("medimate.ai.circuit.open", this, c -> c.openUntil == 0 ? 0 : 1);
+    }
+
+    // The assistant's reply to one system + user exchange
+    public CompletableFuture<String> chat(String system, String user, Double temperature, Integer maxTokens) {
+        if (apiKey == null || apiKey.isBlank()) return reject("GROQ_API_KEY not configured");
+        // Circuit first, so an open circuit spends neither a bulkhead permit nor a quota token
+        boolean trial = openUntil != 0;
+        if (trial && (System.currentTimeMillis() < openUntil || !trialInFlight.compareAndSet(false, true))) {
+            return reject("AI service temporarily unavailable");
+        }
+        if (!inFlight.tryAcquire()) {
+            if (trial) trialInFlight.set(false);
+            return reject("Too many AI requests in flight");
+        }
+        if (!takeToken()) {
+            inFlight.release();
+            if (trial) trialInFlight.set(false);
+            return reject("AI request quota exceeded");
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(body(system, user, temperature, maxTokens))))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(this::content)
+                .whenComplete((content, error) -> {
+                    inFlight.release();
+                    if (error == null) onSuccess(trial);
+                    else onFailure(trial, error);
+                });
+    }
+
+    private JsonObject body(String system, String user, Double temperature, Integer maxTokens) {
+        JsonArray messages = new JsonArray();
+        JsonObject systemMessage = new JsonObject();
+        systemMessage.addProperty("role", "system");
+        systemMessage.addProperty("content", system);
+        messages.add(systemMessage);
+        JsonObject userMessage = new JsonObject();
+        userMessage.addProperty("role", "user");
+        userMessage.addProperty("content", user);
+        messages.add(userMessage);
+
+        JsonObject body = new JsonObject();
+        body.addProperty("model", model);
+        body.add("messages", messages);
+        if (temperature != null) body.addProperty("temperature", temperature);
+        if (maxTokens != null) body.addProperty("max_tokens", maxTokens);
+        return body;
+    }
+
+    private String content(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Groq API error: " + response.statusCode());
+        }
+        JsonObject json = gson.fromJson(response.body(), JsonObject.class);
+        return json.getAsJsonArray("choices").get(0).getAsJsonObject()
+                .getAsJsonObject("message").get("content").getAsString();
+    }
+
+    private synchronized boolean takeToken() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(bucketSize, tokens + (now - refilledAt) * tokensPerMilli);
+        refilledAt = now;
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    private void onSuccess(boolean trial) {
+        succeeded.increment();
+        consecutiveFailures.set(0);
+        // Only the trial decides: a call let through before the circuit opened says nothing about now
+        if (trial) {
+            openUntil = 0;
+            trialInFlight.set(false);
+            logger.info("Groq circuit closed");
+        }
+    }
+
+    private void onFailure(boolean trial, Throwable error) {
+        failed.increment();
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        logger.warn("Groq request failed: {}", cause.toString());
+        if (trial) {
+            openUntil = System.currentTimeMillis() + openMillis;
+            trialInFlight.set(false);
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && openUntil == 0) {
+            openUntil = System.currentTimeMillis() + openMillis;
+            logger.warn("Groq circuit opened for {} ms after {} failures in a row", openMillis, failureThreshold);
+        }
+    }
+
+    private CompletableFuture<String> reject(String reason) {
+        rejected.increment();
+        return CompletableFuture.failedFuture(new Unavailable(reason));
+    }
+}
@@ -0,0 +1,39 @@
+package com.medimate.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single-node stand-in for local development (medimate.auth.token-store=local). Tokens are lost on
+// restart and not shared between replicas.
+@Service
+@ConditionalOnProperty(name = "medimate.auth.token-store", havingValue = "local")
+public class InMemoryTokenStore implements TokenStore {
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String token, String userId, Instant expiresAt) {
+        sessions.put(token, new Session(userId, expiresAt));
+    }
+
+    @Override
+    public Session get(String token) {
+        Session s = sessions.get(token);
+        return s == null || !s.getExpiresAt().isAfter(Instant.now()) ? null : s;
+    }
+
+    @Override
+    public void remove(String token) {
+        sessions.remove(token);
+    }
+
+    @Scheduled(fixedDelay = 600000)
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        sessions.values().removeIf(s -> !s.getExpiresAt().isAfter(now));
+    }
+}
@@ -0,0 +1,59 @@
+package com.medimate.service;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Position in a list read in (timestamp, _id) order, as "<epoch millis>_<id>". The id breaks ties
+// between documents written in the same millisecond, so paging never skips or repeats one. Empty and
+// "0" mean "no position yet".
+final class KeysetCursor {
+    private final long millis;
+    private final String id;
+
+    private KeysetCursor(long millis, String id) {
+        this.millis = millis;
+        this.id = id;
+    }
+
+    static KeysetCursor of(LocalDateTime at, String id) {
+        return new KeysetCursor(at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), id);
+    }
+
+    // null for no position; IllegalArgumentException naming the parameter if s isn't a cursor
+    static KeysetCursor parse(String s, String name) {
+        if (s == null || s.isBlank() || "0".equals(s)) return null;
+        int sep = s.indexOf('_');
+        if (sep <= 0 || sep == s.length() - 1) throw new IllegalArgumentException("Invalid " + name + " cursor");
+        try {
+            return new KeysetCursor(Long.parseLong(s.substring(0, sep)), s.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " cursor");
+        }
+    }
+
+    // Documents after this position in ascending (field, _id) order
+    Criteria after(Criteria base, String field) {
+        LocalDateTime at = at();
+        return base.orOperator(where(field).gt(at), where(field).is(at).and("_id").gt(id));
+    }
+
+    // Documents before this position, for reading backwards in descending (field, _id) order
+    Criteria before(Criteria base, String field) {
+        LocalDateTime at = at();
+        return base.orOperator(where(field).lt(at), where(field).is(at).and("_id").lt(id));
+    }
+
+    private LocalDateTime at() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    @Override
+    public String toString() {
+        return millis + "_" + id;
+    }
+}
@@ -0,0 +1,59 @@
+package com.medimate.service;
+
+import com.medimate.model.AuthToken;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Default store: tokens survive restarts and are visible to every replica. Expired tokens are
+// removed by the TTL index on expiresAt.
+@Service
+@ConditionalOnProperty(name = "medimate.auth.token-store", havingValue = "mongo", matchIfMissing = true)
+public class MongoTokenStore implements TokenStore {
+    private final MongoTemplate mongoTemplate;
+
+    public MongoTokenStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void put(String token, String userId, Instant expiresAt) {
+        AuthToken t = new AuthToken();
+        t.setId(hash(token));
+        t.setUserId(userId);
+        t.setCreatedAt(Instant.now());
+        t.setExpiresAt(expiresAt);
+        mongoTemplate.insert(t);
+    }
+
+    @Override
+    public Session get(String token) {
+        AuthToken t = mongoTemplate.findById(hash(token), AuthToken.class);
+        // The TTL monitor only runs once a minute, so check expiry here too
+        if (t == null || t.getExpiresAt() == null || !t.getExpiresAt().isAfter(Instant.now())) return null;
+        return new Session(t.getUserId(), t.getExpiresAt());
+    }
+
+    @Override
+    public void remove(String token) {
+        mongoTemplate.remove(new Query(where("_id").is(hash(token))), AuthToken.class);
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.medimate.service;
+
+import com.medimate.model.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Coalesces bursts of alerts into one notification. Alerts are buffered per (recipient, patient, type)
+// for window-ms from the first one; the group then goes out as its single notification, or as a digest
+// carrying the count and a short list of what happened. Within a group, alerts with the same key (the
+// natural id of the event, e.g. a dose id) count once. Buffers are in-process: alerts for a patient
+// come from the replica that owns their shard, and pending groups are flushed on shutdown. An offer may
+// carry a callback; once the group's notification is stored it is called with the keys it covered.
+@Service
+public class NotificationAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationAggregator.class);
+    private static final int MAX_LISTED = 10;
+
+    private final NotificationService notifications;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final long windowMillis;
+    private final Counter coalesced;
+    private final Counter duplicates;
+
+    private static final class Group {
+        final String patientName;
+        final Map<String, Notification> alerts = new LinkedHashMap<>(); // by key, first one wins
+        final List<String> items = new ArrayList<>();
+        final Map<Consumer<Collection<String>>, Set<String>> onWritten = new LinkedHashMap<>();
+
+        Group(String patientName) {
+            this.patientName = patientName;
+        }
+    }
+
+    public NotificationAggregator(NotificationService notifications, MeterRegistry meterRegistry,
+                                  @Value("${medimate.notifications.coalesce-window-ms:30000}") long windowMillis) {
+        this.notifications = notifications;
+        this.windowMillis = windowMillis;
+        this.coalesced = meterRegistry.counter("medimate.notifications.coalesced");
+        this.duplicates = meterRegistry.counter("medimate.notifications.duplicates");
+        meterRegistry.gaugeMapSize("medimate.notifications.coalesce.pending", Tags.empty(), groups);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-digest");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        for (String group : new ArrayList<>(groups.keySet())) flush(group);
+    }
+
+    // alert is the notification this event would get on its own; item is its one-line form for a digest
+    public void offer(Notification alert, String patientId, String patientName, String key, String item) {
+        offer(alert, patientId, patientName, key, item, null);
+    }
+
+    public void offer(Notification alert, String patientId, String patientName, String key, String item,
+                      Consumer<Collection<String>> onWritten) {
+        if (windowMillis <= 0) {
+            notifications.enqueue(alert, onWritten == null ? null : () -> onWritten.accept(List.of(key)));
+            return;
+        }
+        String group = alert.getUserId() + "|" + patientId + "|" + alert.getType();
+        boolean[] opened = new boolean[1];
+        groups.compute(group, (k, g) -> {
+            if (g == null) {
+                g = new Group(patientName);
+                opened[0] = true;
+            }
+            if (g.alerts.putIfAbsent(key, alert) == null) g.items.add(item);
+            else duplicates.increment();
+            if (onWritten != null) g.onWritten.computeIfAbsent(onWritten, c -> new LinkedHashSet<>()).add(key);
+            return g;
+        });
+        if (opened[0]) flusher.schedule(() -> flush(group), windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(String group) {
+        // Removal is atomic with offer's compute, so a late alert opens a fresh group instead of getting lost
+        Group g = groups.remove(group);
+        if (g == null) return;
+        try {
+            notifications.enqueue(g.alerts.size() == 1 ? g.alerts.values().iterator().next() : digest(g),
+                    g.onWritten.isEmpty() ? null : () -> g.onWritten.forEach((callback, keys) -> callback.accept(keys)));
+        } catch (Exception e) {
+            logger.error("Could not send coalesced notification for {}", group, e);
+        }
+    }
+
+    private Notification digest(Group g) {
+        Notification first = g.alerts.values().iterator().next();
+        int count = g.alerts.size();
+        coalesced.increment(count - 1);
+        StringBuilder message = new StringBuilder();
+        if (g.patientName != null) message.append("Patient ").append(g.patientName).append(": ");
+        message.append(String.join(", ", g.items.subList(0, Math.min(MAX_LISTED, g.items.size()))));
+        if (count > MAX_LISTED) message.append(" and ").append(count - MAX_LISTED).append(" more");
+
+        Notification n = new Notification();
+        n.setUserId(first.getUserId());
+        n.setType(first.getType());
+        n.setTitle(first.getTitle() + " (" + count + ")");
+        n.setMessage(message.toString());
+        n.setIcon(first.getIcon());
+        n.setColor(first.getColor());
+        n.setCount(count);
+        n.setCreatedAt(LocalDateTime.now());
+        n.setRead(false);
+        return n;
+    }
+}
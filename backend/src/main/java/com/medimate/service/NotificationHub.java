@@ -0,0 +1,193 @@
+package com.medimate.service;
+
+import com.medimate.model.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-process registry of open notification streams (SSE), per user. An idle stream holds no request
+// thread, only its connection and a comment line every heartbeat interval, which also flushes out
+// connections the client has dropped. Pushes run on a small bounded pool so a slow client never holds
+// up whoever created the notification. Each stream has its own short backlog and at most one pool
+// thread writing to it, so one stuck connection can't take over the pool; a stream whose backlog
+// overflows, or whose write has been blocked for longer than write-timeout-ms, is closed and its
+// EventSource reconnects. Streams only reach users connected to this replica; clients reload their
+// list whenever a stream (re)opens, which covers anything pushed while they were away.
+@Service
+public class NotificationHub {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationHub.class);
+
+    private final Map<String, List<Stream>> streams = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor pusher;
+    private final long timeoutMillis;
+    private final int maxPerUser;
+    private final int maxBacklog;
+    private final long writeTimeoutMillis;
+    private final Counter dropped;
+
+    private static final class Stream {
+        final SseEmitter emitter;
+        final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger backlog = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile long writingSince; // 0 while no write is in progress
+
+        Stream(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public NotificationHub(MeterRegistry meterRegistry,
+                           @Value("${medimate.notifications.stream-timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${medimate.notifications.streams-per-user:5}") int maxPerUser,
+                           @Value("${medimate.notifications.push-threads:4}") int pushThreads,
+                           @Value("${medimate.notifications.push-queue:1000}") int pushQueue,
+                           @Value("${medimate.notifications.stream-backlog:100}") int maxBacklog,
+                           @Value("${medimate.notifications.write-timeout-ms:10000}") long writeTimeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxPerUser = Math.max(1, maxPerUser);
+        this.maxBacklog = Math.max(1, maxBacklog);
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        AtomicInteger threads = new AtomicInteger();
+        int poolSize = Math.max(1, pushThreads);
+        this.pusher = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, pushQueue)), r -> {
+                    Thread t = new Thread(r, "notification-push-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.dropped = meterRegistry.counter("medimate.notifications.streams.dropped");
+        meterRegistry.gauge("medimate.notifications.streams", this, NotificationHub::openStreams);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pusher.shutdownNow();
+        streams.values().forEach(list -> list.forEach(stream -> stream.emitter.complete()));
+    }
+
+    public SseEmitter subscribe(String userId) {
+        Stream stream = new Stream(new SseEmitter(timeoutMillis));
+        List<Stream> evicted = new ArrayList<>();
+        streams.compute(userId, (k, list) -> {
+            if (list == null) list = new CopyOnWriteArrayList<>();
+            list.add(stream);
+            // A user with more tabs than the cap loses their oldest stream; its EventSource reconnects
+            while (list.size() > maxPerUser) evicted.add(list.remove(0));
+            return list;
+        });
+        evicted.forEach(old -> old.emitter.complete());
+        stream.emitter.onCompletion(() -> remove(userId, stream));
+        stream.emitter.onTimeout(() -> remove(userId, stream));
+        stream.emitter.onError(e -> remove(userId, stream));
+        return stream.emitter;
+    }
+
+    public void publish(Notification n) {
+        if (n.getUserId() == null) return;
+        List<Stream> list = streams.get(n.getUserId());
+        if (list == null) return;
+        for (Stream stream : list) {
+            send(n.getUserId(), stream,
+                    SseEmitter.event().name("notification").id(n.getId()).data(n, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    public void publishAll(Collection<Notification> notifications) {
+        for (Notification n : notifications) publish(n);
+    }
+
+    @Scheduled(fixedDelayString = "${medimate.notifications.heartbeat-ms:25000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        streams.forEach((userId, list) -> {
+            for (Stream stream : list) {
+                long since = stream.writingSince;
+                if (since != 0 && now - since > writeTimeoutMillis) {
+                    drop(userId, stream, "write blocked for " + (now - since) + " ms");
+                } else {
+                    send(userId, stream, SseEmitter.event().comment("ping"));
+                }
+            }
+        });
+    }
+
+    private void send(String userId, Stream stream, SseEmitter.SseEventBuilder event) {
+        if (stream.backlog.incrementAndGet() > maxBacklog) {
+            drop(userId, stream, "backlog full");
+            return;
+        }
+        stream.pending.add(event);
+        schedule(userId, stream);
+    }
+
+    private void schedule(String userId, Stream stream) {
+        if (!stream.draining.compareAndSet(false, true)) return;
+        try {
+            pusher.execute(() -> drain(userId, stream));
+        } catch (RejectedExecutionException e) {
+            stream.draining.set(false);
+            drop(userId, stream, "push pool saturated");
+        }
+    }
+
+    // Runs on one pool thread at a time per stream
+    private void drain(String userId, Stream stream) {
+        SseEmitter.SseEventBuilder event;
+        while ((event = stream.pending.poll()) != null) {
+            stream.backlog.decrementAndGet();
+            stream.writingSince = System.currentTimeMillis();
+            try {
+                stream.emitter.send(event);
+            } catch (Exception e) {
+                logger.debug("Dropping notification stream for {}: {}", userId, e.getMessage());
+                remove(userId, stream);
+                return;
+            } finally {
+                stream.writingSince = 0;
+            }
+        }
+        stream.draining.set(false);
+        // An event added after the last poll but before the flag cleared would otherwise wait for the next one
+        if (!stream.pending.isEmpty()) schedule(userId, stream);
+    }
+
+    private void drop(String userId, Stream stream, String reason) {
+        if (!remove(userId, stream)) return;
+        dropped.increment();
+        logger.debug("Closing slow notification stream for {}: {}", userId, reason);
+        stream.pending.clear();
+        stream.emitter.complete();
+    }
+
+    private boolean remove(String userId, Stream stream) {
+        boolean[] removed = new boolean[1];
+        streams.computeIfPresent(userId, (k, list) -> {
+            removed[0] = list.remove(stream);
+            return list.isEmpty() ? null : list;
+        });
+        return removed[0];
+    }
+
+    private int openStreams() {
+        return streams.values().stream().mapToInt(List::size).sum();
+    }
+}
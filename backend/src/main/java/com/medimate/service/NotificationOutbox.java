@@ -0,0 +1,159 @@
+package com.medimate.service;
+
+import com.medimate.model.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Bounded in-process queue between whoever raises a notification and Mongo. One writer thread takes
+// what is queued and inserts it in batches of up to batch-size, waiting at most linger-ms for a batch
+// to fill, then pushes the batch to open streams. Notifications arrive with their id already assigned,
+// so a failed batch is retried one document at a time with idempotent saves; whatever still fails is
+// dropped and counted. When the queue is full the caller writes its notification itself, which slows
+// the producer down instead of losing anything. Queued notifications are written out on shutdown.
+// A producer that needs to know its notification is durable passes a callback, run on the writer once
+// the document is stored; a dropped notification never calls back, so the producer retries on its own.
+@Service
+public class NotificationOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutbox.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationHub hub;
+    private final BlockingQueue<Notification> queue;
+    private final Map<String, Runnable> onWritten = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Counter written;
+    private final Counter overflow;
+    private final Counter dropped;
+    private final Timer batchTimer;
+
+    public NotificationOutbox(MongoTemplate mongoTemplate, NotificationHub hub, MeterRegistry meterRegistry,
+                              @Value("${medimate.notifications.outbox.capacity:10000}") int capacity,
+                              @Value("${medimate.notifications.outbox.batch-size:200}") int batchSize,
+                              @Value("${medimate.notifications.outbox.linger-ms:20}") long lingerMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.hub = hub;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.written = meterRegistry.counter("medimate.notifications.outbox.written");
+        this.overflow = meterRegistry.counter("medimate.notifications.outbox.overflow");
+        this.dropped = meterRegistry.counter("medimate.notifications.outbox.dropped");
+        this.batchTimer = meterRegistry.timer("medimate.notifications.outbox.batch");
+        meterRegistry.gaugeCollectionSize("medimate.notifications.outbox.queued", Tags.empty(), queue);
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "notification-outbox");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.execute(this::drain);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdownNow();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Notification> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += batchSize) {
+            write(rest.subList(i, Math.min(rest.size(), i + batchSize)));
+        }
+    }
+
+    // Never blocks on the queue; n must already have its id
+    public void offer(Notification n) {
+        offer(n, null);
+    }
+
+    public void offer(Notification n, Runnable written) {
+        if (written != null) onWritten.put(n.getId(), written);
+        if (queue.offer(n)) return;
+        overflow.increment();
+        write(List.of(n));
+    }
+
+    private void drain() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) break;
+                    Notification next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Put back what we were holding so shutdown writes it
+                batch.forEach(queue::offer);
+                return;
+            }
+            write(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void write(List<Notification> batch) {
+        long start = System.nanoTime();
+        List<Notification> saved;
+        try {
+            saved = new ArrayList<>(mongoTemplate.insertAll(batch));
+        } catch (Exception e) {
+            logger.warn("Notification batch insert of {} failed, retrying one by one: {}", batch.size(), e.getMessage());
+            saved = new ArrayList<>();
+            for (Notification n : batch) {
+                try {
+                    // Upsert by the preassigned id, so documents the failed insert did write aren't duplicated
+                    saved.add(mongoTemplate.save(n));
+                } catch (Exception retry) {
+                    dropped.increment();
+                    logger.error("Dropping notification {} for {}: {}", n.getId(), n.getUserId(), retry.getMessage());
+                }
+            }
+        }
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        written.increment(saved.size());
+        hub.publishAll(saved);
+        for (Notification n : saved) {
+            Runnable callback = onWritten.remove(n.getId());
+            if (callback == null) continue;
+            try {
+                callback.run();
+            } catch (Exception e) {
+                logger.warn("Write callback for notification {} failed: {}", n.getId(), e.getMessage());
+            }
+        }
+        for (Notification n : batch) onWritten.remove(n.getId());
+    }
+}
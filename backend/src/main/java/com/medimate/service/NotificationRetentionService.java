@@ -0,0 +1,143 @@
+package com.medimate.service;
+
+import com.medimate.model.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AddFieldsOperation;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Keeps the hot notifications collection small. Read notifications older than their type's retention
+// are moved to notifications_archive in batches: copied with a server-side $merge (so a batch retried
+// after a failure never duplicates), then deleted. Unread notifications are never moved. Only the
+// scheduler leader runs the job; the per-run cap keeps one pass from holding the scheduler thread for
+// long, and a large backlog simply drains over the next few runs.
+@Service
+public class NotificationRetentionService {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionService.class);
+    public static final String ARCHIVE = "notifications_archive";
+
+    private final MongoTemplate mongoTemplate;
+    private final ShardLeaseManager leases;
+    private final int defaultDays;
+    private final Map<String, Integer> daysByType;
+    private final int batchSize;
+    private final int maxPerRun;
+    private final Counter archived;
+
+    public NotificationRetentionService(MongoTemplate mongoTemplate, ShardLeaseManager leases, MeterRegistry meterRegistry,
+                                        @Value("${medimate.notifications.retention.default-days:30}") int defaultDays,
+                                        @Value("${medimate.notifications.retention.days-by-type:}") String daysByType,
+                                        @Value("${medimate.notifications.retention.batch-size:1000}") int batchSize,
+                                        @Value("${medimate.notifications.retention.max-per-run:20000}") int maxPerRun) {
+        this.mongoTemplate = mongoTemplate;
+        this.leases = leases;
+        this.defaultDays = defaultDays;
+        this.daysByType = parseDaysByType(daysByType);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPerRun = Math.max(this.batchSize, maxPerRun);
+        this.archived = meterRegistry.counter("medimate.notifications.archived");
+    }
+
+    // "RING=7,MEDICATION_MISSED=30"; 0 keeps that type forever
+    private static Map<String, Integer> parseDaysByType(String spec) {
+        Map<String, Integer> days = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) return days;
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) continue;
+            int eq = entry.indexOf('=');
+            try {
+                if (eq <= 0) throw new NumberFormatException();
+                days.put(entry.substring(0, eq).trim(), Integer.parseInt(entry.substring(eq + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Invalid medimate.notifications.retention.days-by-type entry: " + entry);
+            }
+        }
+        return days;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureArchiveIndexes() {
+        try {
+            mongoTemplate.indexOps(ARCHIVE).ensureIndex(new Index()
+                    .on("userId", Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC).named("userId_createdAt"));
+        } catch (Exception e) {
+            logger.warn("Could not ensure indexes for {}: {}", ARCHIVE, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${medimate.notifications.retention.interval-ms:3600000}",
+               initialDelayString = "${medimate.notifications.retention.interval-ms:3600000}")
+    public void archiveExpired() {
+        if (!leases.isLeader()) return;
+        try {
+            long moved = archive();
+            if (moved > 0) logger.info("Archived {} read notifications", moved);
+        } catch (Exception e) {
+            logger.error("Notification archival failed", e);
+        }
+    }
+
+    // One pass over every retention class; returns how many notifications were moved
+    public long archive() {
+        LocalDateTime now = LocalDateTime.now();
+        long moved = 0;
+        for (Map.Entry<String, Integer> e : daysByType.entrySet()) {
+            if (e.getValue() <= 0) continue;
+            moved += archive(where("type").is(e.getKey()), now.minusDays(e.getValue()), maxPerRun - moved);
+        }
+        if (defaultDays > 0) {
+            // Everything without its own retention, including notifications with no type at all
+            moved += archive(where("type").nin(daysByType.keySet()), now.minusDays(defaultDays), maxPerRun - moved);
+        }
+        return moved;
+    }
+
+    // Reads ids off the read_type_createdAt partial index, oldest first
+    private long archive(Criteria type, LocalDateTime cutoff, long budget) {
+        long moved = 0;
+        while (moved < budget && leases.isLeader()) {
+            Query q = new Query(new Criteria().andOperator(type, where("read").is(true).and("createdAt").lt(cutoff)))
+                    .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                    .limit((int) Math.min(batchSize, budget - moved));
+            q.fields().include("_id");
+            List<String> ids = mongoTemplate.find(q, Notification.class).stream()
+                    .map(Notification::getId).collect(Collectors.toList());
+            if (ids.isEmpty()) break;
+
+            TypedAggregation<Notification> copy = Aggregation.newAggregation(Notification.class,
+                    Aggregation.match(where("_id").in(ids)),
+                    AddFieldsOperation.addField("archivedAt").withValue(new Date()).build(),
+                    MergeOperation.builder().intoCollection(ARCHIVE).on("_id")
+                            .whenMatched(MergeOperation.WhenDocumentsMatch.keepExistingDocument())
+                            .whenNotMatched(MergeOperation.WhenDocumentsDontMatch.insertNewDocument())
+                            .build());
+            mongoTemplate.aggregate(copy, Document.class);
+            long deleted = mongoTemplate.remove(new Query(where("_id").in(ids)), Notification.class).getDeletedCount();
+            archived.increment(deleted);
+            moved += deleted;
+            if (ids.size() < batchSize) break;
+        }
+        return moved;
+    }
+}
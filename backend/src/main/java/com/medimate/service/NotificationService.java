@@ -0,0 +1,130 @@
+package com.medimate.service;
+
+import com.medimate.model.Notification;
+import com.medimate.repo.NotificationRepository;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Creates and updates notifications. New ones are pushed to the recipient's open streams, either right
+// away (send) or once the outbox has written them (enqueue); every write stamps updatedAt, which drives
+// the since-cursor sync and the list ETags below.
+@Service
+public class NotificationService {
+    public static final int DEFAULT_SYNC_LIMIT = 100;
+    public static final int MAX_SYNC_LIMIT = 500;
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationHub hub;
+    private final MongoTemplate mongoTemplate;
+    private final NotificationOutbox outbox;
+
+    public NotificationService(NotificationRepository notificationRepository, NotificationHub hub,
+                               MongoTemplate mongoTemplate, NotificationOutbox outbox) {
+        this.notificationRepository = notificationRepository;
+        this.hub = hub;
+        this.mongoTemplate = mongoTemplate;
+        this.outbox = outbox;
+    }
+
+    // One page of a since-cursor sync: pass cursor back as since to get what changed after this page
+    public static final class Changes {
+        private final List<Notification> notifications;
+        private final String cursor;
+        private final boolean hasMore;
+
+        Changes(List<Notification> notifications, String cursor, boolean hasMore) {
+            this.notifications = notifications;
+            this.cursor = cursor;
+            this.hasMore = hasMore;
+        }
+
+        public List<Notification> getNotifications() { return notifications; }
+        public String getCursor() { return cursor; }
+        public boolean isHasMore() { return hasMore; }
+    }
+
+    public Notification send(Notification n) {
+        n.setUpdatedAt(LocalDateTime.now());
+        Notification saved = notificationRepository.save(n);
+        hub.publish(saved);
+        return saved;
+    }
+
+    // Fire-and-forget variant for alerts raised by the system: queued on the outbox and written in a
+    // batch shortly after. The id is assigned here, so callers can still hand it out.
+    public Notification enqueue(Notification n) {
+        return enqueue(n, null);
+    }
+
+    // onWritten runs once the notification is stored; it never runs if the write is dropped
+    public Notification enqueue(Notification n, Runnable onWritten) {
+        if (n.getId() == null) n.setId(new ObjectId().toHexString());
+        n.setUpdatedAt(LocalDateTime.now());
+        outbox.offer(n, onWritten);
+        return n;
+    }
+
+    // Changes to an existing notification (read flag, edits)
+    public Notification save(Notification n) {
+        n.setUpdatedAt(LocalDateTime.now());
+        return notificationRepository.save(n);
+    }
+
+    // One server-side update over the user's unread notifications (the userId_unread partial index);
+    // rows that are already read aren't touched. Returns how many changed.
+    public long markAllRead(String userId) {
+        Query unread = new Query(where("userId").is(userId).and("read").is(false));
+        return mongoTemplate.updateMulti(unread, new Update().set("read", true).set("updatedAt", LocalDateTime.now()),
+                Notification.class).getModifiedCount();
+    }
+
+    // Changes with every create, update and delete of the user's notifications: creates and updates
+    // move the newest updatedAt, deletes the count. Two small index reads instead of the whole list.
+    public String etag(String userId) {
+        Query q = new Query(where("userId").is(userId)).with(Sort.by(Sort.Direction.DESC, "updatedAt")).limit(1);
+        q.fields().include("updatedAt");
+        Notification newest = mongoTemplate.findOne(q, Notification.class);
+        long count = mongoTemplate.count(new Query(where("userId").is(userId)), Notification.class);
+        long changed = newest == null || newest.getUpdatedAt() == null ? 0 : toMillis(newest.getUpdatedAt());
+        return "\"" + count + "-" + Long.toString(changed, 36) + "\"";
+    }
+
+    // Notifications created or updated after since, oldest change first. An empty or "0" since starts
+    // from the beginning; notifications written before updatedAt existed only show up in the full list.
+    // Deletes aren't reported here.
+    public Changes changedSince(String userId, String since, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SYNC_LIMIT));
+        Criteria criteria = where("userId").is(userId);
+        KeysetCursor after = KeysetCursor.parse(since, "since");
+        if (after != null) {
+            criteria = after.after(criteria, "updatedAt");
+        } else {
+            criteria = criteria.and("updatedAt").ne(null);
+        }
+        Query q = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "updatedAt").and(Sort.by(Sort.Direction.ASC, "_id")))
+                .limit(size + 1);
+        List<Notification> page = mongoTemplate.find(q, Notification.class);
+        boolean hasMore = page.size() > size;
+        if (hasMore) page = page.subList(0, size);
+        String cursor = page.isEmpty()
+                ? (after == null ? "0" : since)
+                : KeysetCursor.of(page.get(page.size() - 1).getUpdatedAt(), page.get(page.size() - 1).getId()).toString();
+        return new Changes(page, cursor, hasMore);
+    }
+
+    private static long toMillis(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
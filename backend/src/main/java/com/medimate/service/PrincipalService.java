@@ -0,0 +1,102 @@
+package com.medimate.service;
+
+import com.medimate.model.AuthPrincipal;
+import com.medimate.model.Patient;
+import com.medimate.model.User;
+import com.medimate.repo.PatientRepository;
+import com.medimate.repo.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Turns a token into an AuthPrincipal. Principals are cached per user for a short while; writes that
+// change a user or a patient link invalidate them, so the TTL only matters for other replicas. The
+// elder -> caretaker links derived from the same documents are invalidated along with them.
+@Service
+public class PrincipalService {
+    private final TokenService tokenService;
+    private final UserRepository userRepository;
+    private final PatientRepository patientRepository;
+    private final CaretakerLinkCache caretakerLinks;
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    private static final class Cached {
+        final AuthPrincipal principal;
+        final long validUntil;
+
+        Cached(AuthPrincipal principal, long validUntil) {
+            this.principal = principal;
+            this.validUntil = validUntil;
+        }
+    }
+
+    public PrincipalService(TokenService tokenService, UserRepository userRepository,
+                            PatientRepository patientRepository, CaretakerLinkCache caretakerLinks,
+                            MeterRegistry meterRegistry,
+                            @Value("${medimate.auth.principal-cache-ttl-ms:60000}") long ttlMillis,
+                            @Value("${medimate.auth.principal-cache-size:10000}") int maxSize) {
+        this.tokenService = tokenService;
+        this.userRepository = userRepository;
+        this.patientRepository = patientRepository;
+        this.caretakerLinks = caretakerLinks;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.hits = meterRegistry.counter("medimate.auth.principal.cache", "result", "hit");
+        this.misses = meterRegistry.counter("medimate.auth.principal.cache", "result", "miss");
+        meterRegistry.gaugeMapSize("medimate.auth.principal.cache.size", Tags.empty(), cache);
+    }
+
+    // The principal for token, or null if the token is invalid or its user no longer exists
+    public AuthPrincipal resolve(String token) {
+        String userId = tokenService.validate(token);
+        if (userId == null) return null;
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(userId);
+        if (cached != null && now < cached.validUntil) {
+            hits.increment();
+            return cached.principal;
+        }
+        misses.increment();
+        AuthPrincipal principal = load(userId);
+        if (principal == null) {
+            cache.remove(userId);
+            return null;
+        }
+        if (cache.size() >= maxSize) cache.clear();
+        cache.put(userId, new Cached(principal, now + ttlMillis));
+        return principal;
+    }
+
+    private AuthPrincipal load(String userId) {
+        User u = userRepository.findById(userId).orElse(null);
+        if (u == null) return null;
+        List<Patient> own = u.getEmail() == null ? List.of() : patientRepository.findByEmailIgnoreCase(u.getEmail());
+        List<String> patientIds = patientRepository.findByCaretakerId(userId).stream()
+                .map(Patient::getId).collect(Collectors.toList());
+        return new AuthPrincipal(u, own.isEmpty() ? null : own.get(0), patientIds);
+    }
+
+    public void invalidate(String userId) {
+        if (userId != null) cache.remove(userId);
+        caretakerLinks.invalidate(userId);
+    }
+
+    // After a write to patient: its caretaker's patient list changed (and, on a reassignment, the former
+    // caretaker's), as did the links of the elders the record matches
+    public void invalidatePatient(Patient patient, String formerCaretakerId, String formerContactNumber) {
+        if (patient.getCaretakerId() != null) cache.remove(patient.getCaretakerId());
+        if (formerCaretakerId != null) cache.remove(formerCaretakerId);
+        for (String elder : caretakerLinks.invalidatePatient(patient, formerContactNumber)) cache.remove(elder);
+    }
+}
@@ -0,0 +1,234 @@
+package com.medimate.service;
+
+import com.medimate.model.SchedulerLease;
+import com.medimate.model.SchedulerNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Splits scheduled work between backend replicas. userIds hash into SHARDS shards by the last hex digit
+// of their ObjectId (the low bits of its counter, so users spread evenly); each shard has a lease
+// document that one replica renews while it is alive. Every replica heartbeats, takes up to its fair
+// share of free or expired shards and gives back any excess, so shards move automatically when a
+// replica joins, leaves or stops renewing.
+@Service
+public class ShardLeaseManager {
+    private static final Logger logger = LoggerFactory.getLogger(ShardLeaseManager.class);
+    public static final int SHARDS = 16;
+    private static final String HEX = "0123456789abcdef";
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher events;
+    private final String nodeId;
+    private final long leaseTtlMillis;
+    private final ScheduledExecutorService heartbeats;
+    private final ExecutorService notifier;
+
+    private volatile Set<Integer> owned = Set.of();
+    private volatile long validUntil; // local clock; past this our leases may already belong to someone else
+
+    // Published on a separate thread so slow listeners never delay lease renewal
+    public static final class ShardsChanged {
+        private final Set<Integer> gained;
+        private final Set<Integer> lost;
+
+        ShardsChanged(Set<Integer> gained, Set<Integer> lost) {
+            this.gained = gained;
+            this.lost = lost;
+        }
+
+        public Set<Integer> getGained() { return gained; }
+        public Set<Integer> getLost() { return lost; }
+    }
+
+    public ShardLeaseManager(MongoTemplate mongoTemplate, ApplicationEventPublisher events, MeterRegistry meterRegistry,
+                             @Value("${medimate.scheduler.lease-ttl-ms:30000}") long leaseTtlMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.events = events;
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        meterRegistry.gauge("medimate.scheduler.shards.owned", this, m -> m.ownedShards().size());
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "shard-leases"));
+        this.notifier = Executors.newSingleThreadExecutor(r -> daemon(r, "shard-events"));
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void join() {
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SchedulerLease.class);
+        for (int s = 0; s < SHARDS; s++) {
+            ops.upsert(new Query(where("_id").is(s)), new Update().setOnInsert("expiresAt", Instant.EPOCH));
+        }
+        ops.execute();
+        logger.info("Scheduler node {} joining ({} shards, lease {} ms)", nodeId, SHARDS, leaseTtlMillis);
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, 0, leaseTtlMillis / 3, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void leave() {
+        heartbeats.shutdownNow();
+        notifier.shutdownNow();
+        try {
+            // Hand our shards straight back instead of making the others wait out the lease
+            mongoTemplate.updateMulti(new Query(where("owner").is(nodeId)),
+                    new Update().unset("owner").set("expiresAt", Instant.EPOCH), SchedulerLease.class);
+            mongoTemplate.remove(new Query(where("_id").is(nodeId)), SchedulerNode.class);
+        } catch (Exception e) {
+            logger.warn("Could not release scheduler leases on shutdown", e);
+        }
+    }
+
+    // Runs on its own thread; a failure keeps the schedule and our leases simply age out
+    private void heartbeat() {
+        try {
+            long started = System.currentTimeMillis();
+            Instant now = Instant.ofEpochMilli(started);
+            Instant expires = now.plusMillis(leaseTtlMillis);
+
+            mongoTemplate.upsert(new Query(where("_id").is(nodeId)), new Update().set("heartbeatAt", now), SchedulerNode.class);
+            long live = mongoTemplate.count(new Query(where("heartbeatAt").gt(now.minusMillis(leaseTtlMillis))), SchedulerNode.class);
+            int share = (int) Math.ceil((double) SHARDS / Math.max(1, live));
+
+            mongoTemplate.updateMulti(new Query(where("owner").is(nodeId)), new Update().set("expiresAt", expires), SchedulerLease.class);
+            TreeSet<Integer> mine = leasedShards();
+
+            // Give back the excess first so a new replica can pick it up on its next heartbeat
+            while (mine.size() > share) {
+                Integer s = mine.pollLast();
+                mongoTemplate.updateFirst(new Query(where("_id").is(s).and("owner").is(nodeId)),
+                        new Update().unset("owner").set("expiresAt", Instant.EPOCH), SchedulerLease.class);
+            }
+            // Random starting point keeps replicas from racing for the same free shard
+            int offset = ThreadLocalRandom.current().nextInt(SHARDS);
+            for (int i = 0; i < SHARDS && mine.size() < share; i++) {
+                int s = (offset + i) % SHARDS;
+                if (mine.contains(s)) continue;
+                Query free = new Query(where("_id").is(s).orOperator(where("owner").is(null), where("expiresAt").lt(now)));
+                if (mongoTemplate.updateFirst(free, new Update().set("owner", nodeId).set("expiresAt", expires),
+                        SchedulerLease.class).getModifiedCount() > 0) {
+                    mine.add(s);
+                }
+            }
+
+            Set<Integer> previous = ownedShards();
+            Set<Integer> current = Collections.unmodifiableSet(mine);
+            owned = current;
+            validUntil = started + leaseTtlMillis;
+            publishChanges(previous, current);
+        } catch (Exception e) {
+            logger.error("Scheduler lease heartbeat failed", e);
+        }
+    }
+
+    private TreeSet<Integer> leasedShards() {
+        Query q = new Query(where("owner").is(nodeId));
+        q.fields().include("_id");
+        return mongoTemplate.find(q, SchedulerLease.class).stream()
+                .map(SchedulerLease::getId).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private void publishChanges(Set<Integer> previous, Set<Integer> current) {
+        Set<Integer> gained = new TreeSet<>(current);
+        gained.removeAll(previous);
+        Set<Integer> lost = new TreeSet<>(previous);
+        lost.removeAll(current);
+        if (gained.isEmpty() && lost.isEmpty()) return;
+        logger.info("Scheduler node {} now owns shards {} (gained {}, lost {})", nodeId, current, gained, lost);
+        ShardsChanged event = new ShardsChanged(Collections.unmodifiableSet(gained), Collections.unmodifiableSet(lost));
+        notifier.execute(() -> {
+            try {
+                events.publishEvent(event);
+            } catch (Exception e) {
+                logger.error("Shard change listener failed", e);
+            }
+        });
+    }
+
+    // ========== OWNERSHIP ==========
+
+    public static int shardOf(String userId) {
+        if (userId == null || userId.isEmpty()) return 0;
+        int digit = HEX.indexOf(Character.toLowerCase(userId.charAt(userId.length() - 1)));
+        // Ids that aren't ObjectIds all land on shard 0, matching the query filter below
+        return digit < 0 ? 0 : digit;
+    }
+
+    public Set<Integer> ownedShards() {
+        return System.currentTimeMillis() < validUntil ? owned : Set.of();
+    }
+
+    public boolean owns(String userId) {
+        return ownedShards().contains(shardOf(userId));
+    }
+
+    // The owner of shard 0 runs the jobs that aren't split by user
+    public boolean isLeader() {
+        return ownedShards().contains(0);
+    }
+
+    // Criteria matching documents whose userId field falls in the given shards
+    public static Criteria usersIn(String field, Set<Integer> shards) {
+        if (shards.size() >= SHARDS) return where(field).ne(null);
+        if (shards.isEmpty()) return where(field).in(Collections.emptyList());
+        StringBuilder digits = new StringBuilder();
+        for (int s : shards) digits.append(HEX.charAt(s));
+        String pattern = "[" + digits + "]$";
+        if (shards.contains(0)) pattern = "(?:" + pattern + "|[^0-9a-fA-F]$)";
+        return where(field).regex(pattern, "i");
+    }
+
+    // ========== GENERATION BOOKKEEPING ==========
+
+    // Shards among the given ones whose doses have not been generated for date yet
+    public Set<Integer> pendingGeneration(Set<Integer> shards, LocalDate date) {
+        if (shards.isEmpty()) return Set.of();
+        Query q = new Query(where("_id").in(shards));
+        q.fields().include("generatedFor");
+        return mongoTemplate.find(q, SchedulerLease.class).stream()
+                .filter(l -> l.getGeneratedFor() == null || l.getGeneratedFor().isBefore(date))
+                .map(SchedulerLease::getId)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    public void markGenerated(Set<Integer> shards, LocalDate date) {
+        if (shards.isEmpty()) return;
+        mongoTemplate.updateMulti(new Query(where("_id").in(shards)), new Update().max("generatedFor", date), SchedulerLease.class);
+    }
+}
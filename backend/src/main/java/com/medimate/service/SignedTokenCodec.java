@@ -0,0 +1,84 @@
+package com.medimate.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+// Self-contained tokens: base64url(payload) "." base64url(HMAC-SHA256(payload)), where the payload is
+// "v1|userId|role|expiresAtEpochSeconds|tokenId". Any replica holding the key can verify one without
+// a lookup. Mac instances aren't thread-safe, so each thread keeps its own.
+public class SignedTokenCodec {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "v1";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ThreadLocal<Mac> macs;
+
+    public static final class Claims {
+        private final String userId;
+        private final String role;
+        private final long expiresAt;
+        private final String tokenId;
+
+        Claims(String userId, String role, long expiresAt, String tokenId) {
+            this.userId = userId;
+            this.role = role;
+            this.expiresAt = expiresAt;
+            this.tokenId = tokenId;
+        }
+
+        public String getUserId() { return userId; }
+        public String getRole() { return role; }
+        public long getExpiresAt() { return expiresAt; } // epoch seconds
+        public String getTokenId() { return tokenId; }
+    }
+
+    public SignedTokenCodec(byte[] key) {
+        SecretKeySpec spec = new SecretKeySpec(key, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(spec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+            }
+        });
+    }
+
+    public String issue(String userId, String role, long expiresAt, String tokenId) {
+        String payload = String.join("|", VERSION, userId, role == null ? "" : role.replace("|", ""),
+                Long.toString(expiresAt), tokenId);
+        byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(body) + "." + ENCODER.encodeToString(macs.get().doFinal(body));
+    }
+
+    // The token's claims, or null if it is malformed, tampered with or expired
+    public Claims verify(String token, long nowEpochSeconds) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) return null;
+        byte[] body;
+        byte[] signature;
+        try {
+            body = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(macs.get().doFinal(body), signature)) return null;
+        String[] parts = new String(body, StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != 5 || !VERSION.equals(parts[0])) return null;
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(parts[3]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (expiresAt <= nowEpochSeconds) return null;
+        return new Claims(parts[1], parts[2].isEmpty() ? null : parts[2], expiresAt, parts[4]);
+    }
+}
@@ -0,0 +1,125 @@
+package com.medimate.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hierarchical hashed timing wheel keyed by K. Level 0 has one slot per tick; each higher level has
+// one slot per full rotation of the level below. Entries sit in the coarsest level that still fits
+// their deadline and cascade down as the clock reaches their slot, so scheduling, cancelling and
+// advancing are O(1) per entry regardless of how many timers are pending.
+public class TimingWheel<K> {
+    private final long tickMillis;
+    private final int[] sizes;
+    private final long[] spans; // ticks covered by one slot at each level
+    private final List<ArrayDeque<Entry<K>>[]> levels = new ArrayList<>();
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final List<Entry<K>> overdue = new ArrayList<>();
+    private long currentTick;
+
+    private static final class Entry<K> {
+        final K key;
+        final long deadlineTick;
+        boolean cancelled;
+
+        Entry(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    // e.g. tickMillis=1000, sizes={60, 60, 24, 8}: seconds, minutes, hours, days
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMillis, int[] sizes, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.sizes = sizes.clone();
+        this.spans = new long[sizes.length];
+        long span = 1;
+        for (int i = 0; i < sizes.length; i++) {
+            spans[i] = span;
+            ArrayDeque<Entry<K>>[] slots = new ArrayDeque[sizes[i]];
+            for (int s = 0; s < slots.length; s++) slots[s] = new ArrayDeque<>();
+            levels.add(slots);
+            span *= sizes[i];
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    // Schedules (or re-schedules) key to fire at deadlineMillis
+    public synchronized void schedule(K key, long deadlineMillis) {
+        Entry<K> previous = entries.remove(key);
+        if (previous != null) previous.cancelled = true;
+        // Round up so an entry never fires before its deadline
+        Entry<K> e = new Entry<>(key, (deadlineMillis + tickMillis - 1) / tickMillis);
+        entries.put(key, e);
+        place(e);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Entry<K> e = entries.remove(key);
+        if (e == null) return false;
+        e.cancelled = true;
+        return true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Moves the clock to nowMillis and returns the keys whose deadline has been reached
+    public synchronized List<K> advance(long nowMillis) {
+        List<K> due = new ArrayList<>();
+        for (Entry<K> e : overdue) fire(e, due);
+        overdue.clear();
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            // Cascade higher levels whose slot boundary we just crossed, coarsest first
+            for (int level = sizes.length - 1; level > 0; level--) {
+                if (currentTick % spans[level] == 0) {
+                    ArrayDeque<Entry<K>> slot = levels.get(level)[(int) ((currentTick / spans[level]) % sizes[level])];
+                    List<Entry<K>> moving = new ArrayList<>(slot);
+                    slot.clear();
+                    for (Entry<K> e : moving) {
+                        if (e.deadlineTick <= currentTick) fire(e, due);
+                        else if (!e.cancelled) place(e);
+                    }
+                }
+            }
+            ArrayDeque<Entry<K>> slot = levels.get(0)[(int) (currentTick % sizes[0])];
+            while (!slot.isEmpty()) {
+                Entry<K> e = slot.poll();
+                if (e.deadlineTick <= currentTick) fire(e, due);
+                else place(e);
+            }
+        }
+        return due;
+    }
+
+    private void fire(Entry<K> e, List<K> due) {
+        if (e.cancelled) return;
+        entries.remove(e.key);
+        due.add(e.key);
+    }
+
+    private void place(Entry<K> e) {
+        long delta = e.deadlineTick - currentTick;
+        if (delta <= 0) {
+            overdue.add(e);
+            return;
+        }
+        int top = sizes.length - 1;
+        for (int level = 0; level <= top; level++) {
+            if (delta < spans[level] * sizes[level] || level == top) {
+                // Beyond the top level's range the entry parks in its farthest slot and is re-placed on cascade
+                long tick = level == top && delta >= spans[level] * sizes[level]
+                        ? currentTick + spans[level] * (sizes[level] - 1)
+                        : e.deadlineTick;
+                levels.get(level)[(int) ((tick / spans[level]) % sizes[level])].add(e);
+                return;
+            }
+        }
+    }
+}
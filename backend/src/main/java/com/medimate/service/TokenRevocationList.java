@@ -0,0 +1,103 @@
+package com.medimate.service;
+
+import com.medimate.model.RevokedToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Logged-out signed tokens. Every replica keeps a Bloom filter of revoked token ids, refreshed from
+// revoked_tokens every few seconds, so the common case (token not revoked) is answered locally. Only a
+// filter hit, a real revocation or a rare false positive, is confirmed against the collection.
+@Service
+@ConditionalOnProperty(name = "medimate.auth.token-mode", havingValue = "signed")
+public class TokenRevocationList {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    // Revocations are stamped with the revoking replica's clock; re-reading a little history covers skew
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final int capacity;
+    private final Counter clear;
+    private final Counter revoked;
+    private final Counter falsePositives;
+
+    private volatile BloomFilter filter;
+    private volatile Instant watermark = Instant.EPOCH;
+
+    public TokenRevocationList(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                               @Value("${medimate.auth.revocation-capacity:100000}") int capacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.capacity = capacity;
+        this.filter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        this.clear = meterRegistry.counter("medimate.auth.revocation.checks", "result", "clear");
+        this.revoked = meterRegistry.counter("medimate.auth.revocation.checks", "result", "revoked");
+        this.falsePositives = meterRegistry.counter("medimate.auth.revocation.checks", "result", "false-positive");
+    }
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        mongoTemplate.upsert(new Query(where("_id").is(tokenId)),
+                new Update().set("revokedAt", Instant.now()).set("expiresAt", expiresAt), RevokedToken.class);
+        filter.add(tokenId);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (!filter.mightContain(tokenId)) {
+            clear.increment();
+            return false;
+        }
+        boolean exists = mongoTemplate.exists(new Query(where("_id").is(tokenId)), RevokedToken.class);
+        (exists ? revoked : falsePositives).increment();
+        return exists;
+    }
+
+    @Scheduled(fixedDelayString = "${medimate.auth.revocation-refresh-ms:10000}")
+    public void refresh() {
+        try {
+            Instant from = watermark;
+            Instant now = Instant.now();
+            for (String id : revokedSince(from.minus(REFRESH_OVERLAP))) filter.add(id);
+            watermark = now;
+        } catch (Exception e) {
+            logger.error("Token revocation refresh failed", e);
+        }
+    }
+
+    // Bloom filters can't forget, so rebuild from the live set hourly to drop expired ids and resize
+    @PostConstruct
+    @Scheduled(fixedDelay = 3600000, initialDelay = 3600000)
+    public void rebuild() {
+        try {
+            Instant now = Instant.now();
+            List<String> ids = revokedSince(Instant.EPOCH);
+            BloomFilter fresh = new BloomFilter(Math.max(capacity, ids.size() * 2), FALSE_POSITIVE_RATE);
+            for (String id : ids) fresh.add(id);
+            filter = fresh;
+            // Anything revoked while we were loading is picked up by the next refresh
+            watermark = now;
+        } catch (Exception e) {
+            logger.error("Token revocation rebuild failed", e);
+        }
+    }
+
+    private List<String> revokedSince(Instant since) {
+        Query q = new Query(where("revokedAt").gt(since).and("expiresAt").gt(Instant.now()));
+        q.fields().include("_id");
+        return mongoTemplate.find(q, RevokedToken.class).stream().map(RevokedToken::getId).toList();
+    }
+}
@@ -1,26 +1,149 @@
 package com.medimate.service;
 
+import com.medimate.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+// Issues and validates session tokens. Tokens live in the shared TokenStore; validate() runs on every
+// API call, so recently seen tokens are answered from a bounded local cache. A cached entry is trusted
+// for at most cache-ttl, which bounds how long another replica can miss a removed token.
+// With medimate.auth.token-mode=signed, tokens are instead HMAC-signed and carry the user id, role and
+// expiry themselves; validating one needs no store at all, only the revocation filter for logouts.
 @Service
 public class TokenService {
-    private final Map<String, String> tokenToUser = new ConcurrentHashMap<>();
+    private final TokenStore store;
+    private final SignedTokenCodec codec; // null in session mode
+    private final TokenRevocationList revocations;
+    private final Map<String, CachedSession> cache = new ConcurrentHashMap<>();
     private final SecureRandom random = new SecureRandom();
+    private final Duration tokenTtl;
+    private final long cacheTtlMillis;
+    private final int cacheSize;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
 
-    public String generateToken(String userId) {
-        byte[] bytes = new byte[32];
-        random.nextBytes(bytes);
-        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
-        tokenToUser.put(token, userId);
+    private static final class CachedSession {
+        final String userId;
+        final long validUntil;
+
+        CachedSession(String userId, long validUntil) {
+            this.userId = userId;
+            this.validUntil = validUntil;
+        }
+    }
+
+    public TokenService(TokenStore store, ObjectProvider<TokenRevocationList> revocations, MeterRegistry meterRegistry,
+                        @Value("${medimate.auth.token-mode:session}") String mode,
+                        @Value("${medimate.auth.signing-key:}") String signingKey,
+                        @Value("${medimate.auth.token-ttl-hours:168}") long tokenTtlHours,
+                        @Value("${medimate.auth.token-cache-ttl-ms:60000}") long cacheTtlMillis,
+                        @Value("${medimate.auth.token-cache-size:10000}") int cacheSize) {
+        this.store = store;
+        if ("signed".equals(mode)) {
+            // Every replica must share the key, so a generated one would be useless
+            if (signingKey.length() < 32) {
+                throw new IllegalStateException("medimate.auth.signing-key must be at least 32 characters in signed token mode");
+            }
+            this.codec = new SignedTokenCodec(signingKey.getBytes(StandardCharsets.UTF_8));
+            this.revocations = revocations.getObject();
+        } else {
+            this.codec = null;
+            this.revocations = null;
+        }
+        this.tokenTtl = Duration.ofHours(tokenTtlHours);
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.cacheSize = cacheSize;
+        this.hits = meterRegistry.counter("medimate.auth.token.cache", "result", "hit");
+        this.misses = meterRegistry.counter("medimate.auth.token.cache", "result", "miss");
+        this.evictions = meterRegistry.counter("medimate.auth.token.cache.evictions");
+        meterRegistry.gaugeMapSize("medimate.auth.token.cache.size", Tags.empty(), cache);
+    }
+
+    public String generateToken(User user) {
+        Instant expiresAt = Instant.now().plus(tokenTtl);
+        if (codec != null) {
+            return codec.issue(user.getId(), user.getRole(), expiresAt.getEpochSecond(), randomId(12));
+        }
+        String token = randomId(32);
+        store.put(token, user.getId(), expiresAt);
+        cache(token, user.getId(), expiresAt.toEpochMilli());
         return token;
     }
 
+    private String randomId(int bytes) {
+        byte[] b = new byte[bytes];
+        random.nextBytes(b);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+    }
+
     public String validate(String token) {
-        return tokenToUser.get(token);
+        if (token == null || token.isEmpty()) return null;
+        if (codec != null) {
+            SignedTokenCodec.Claims claims = codec.verify(token, System.currentTimeMillis() / 1000);
+            if (claims == null || revocations.isRevoked(claims.getTokenId())) return null;
+            return claims.getUserId();
+        }
+        long now = System.currentTimeMillis();
+        CachedSession cached = cache.get(token);
+        if (cached != null && now < cached.validUntil) {
+            hits.increment();
+            return cached.userId;
+        }
+        misses.increment();
+        TokenStore.Session session = store.get(token);
+        if (session == null) {
+            if (cached != null) cache.remove(token);
+            return null;
+        }
+        cache(token, session.getUserId(), session.getExpiresAt().toEpochMilli());
+        return session.getUserId();
+    }
+
+    // Logout: the token stops working on this replica at once and on the others within cache-ttl
+    // (session mode) or the revocation refresh interval (signed mode)
+    public void revoke(String token) {
+        if (token == null || token.isEmpty()) return;
+        if (codec != null) {
+            SignedTokenCodec.Claims claims = codec.verify(token, System.currentTimeMillis() / 1000);
+            if (claims != null) revocations.revoke(claims.getTokenId(), Instant.ofEpochSecond(claims.getExpiresAt()));
+            return;
+        }
+        cache.remove(token);
+        store.remove(token);
+    }
+
+    private void cache(String token, String userId, long expiresAt) {
+        if (cache.size() >= cacheSize) evict();
+        cache.put(token, new CachedSession(userId, Math.min(expiresAt, System.currentTimeMillis() + cacheTtlMillis)));
+    }
+
+    // Drops stale entries first, then arbitrary ones until a tenth of the room is free again; an
+    // evicted token only costs one store lookup on its next request
+    private synchronized void evict() {
+        if (cache.size() < cacheSize) return;
+        long now = System.currentTimeMillis();
+        int before = cache.size();
+        cache.values().removeIf(c -> now >= c.validUntil);
+        int target = cacheSize - Math.max(1, cacheSize / 10);
+        Iterator<String> it = cache.keySet().iterator();
+        while (cache.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        evictions.increment(before - cache.size());
     }
 }
@@ -0,0 +1,26 @@
+package com.medimate.service;
+
+import java.time.Instant;
+
+// Backing store for session tokens; TokenService keeps a small local cache in front of it
+public interface TokenStore {
+    void put(String token, String userId, Instant expiresAt);
+
+    // The session for token, or null if it is unknown or expired
+    Session get(String token);
+
+    void remove(String token);
+
+    final class Session {
+        private final String userId;
+        private final Instant expiresAt;
+
+        public Session(String userId, Instant expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUserId() { return userId; }
+        public Instant getExpiresAt() { return expiresAt; }
+    }
+}
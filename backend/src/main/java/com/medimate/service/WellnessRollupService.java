@@ -0,0 +1,137 @@
+package com.medimate.service;
+
+import com.medimate.model.WellnessDailyRollup;
+import com.medimate.model.WellnessLog;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Keeps WellnessDailyRollup in step with wellness_logs. Each new log is folded into its day's rollup
+// with a single atomic upsert ($inc/$min/$max), so concurrent writes never lose a count. backfill()
+// rebuilds every rollup from the raw logs on the server; it runs on startup when the rollup
+// collection is still empty and can be re-run from the admin API.
+@Service
+public class WellnessRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(WellnessRollupService.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public WellnessRollupService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void record(WellnessLog log) {
+        if (log.getUserId() == null) return;
+        LocalDate date = log.getDate() != null ? log.getDate() : LocalDate.now();
+        Update update = new Update()
+                .setOnInsert("userId", log.getUserId())
+                .setOnInsert("date", date)
+                .inc("count", 1)
+                .set("updatedAt", Instant.now());
+        if (log.getEnergy() != null) {
+            update.inc("energyCount", 1)
+                    .inc("energySum", log.getEnergy())
+                    .min("energyMin", log.getEnergy())
+                    .max("energyMax", log.getEnergy());
+        }
+        String mood = moodKey(log.getMood());
+        if (mood != null) update.inc("moods." + mood, 1);
+        mongoTemplate.upsert(new Query(where("_id").is(WellnessDailyRollup.keyFor(log.getUserId(), date))),
+                update, WellnessDailyRollup.class);
+    }
+
+    // Moods become field names in the histogram, where '.' and a leading '$' aren't allowed
+    static String moodKey(String mood) {
+        if (mood == null || mood.isBlank()) return null;
+        return mood.replace('.', '_').replace('$', '_');
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (mongoTemplate.estimatedCount(WellnessDailyRollup.class) > 0) return;
+            if (mongoTemplate.estimatedCount(WellnessLog.class) == 0) return;
+            logger.info("Wellness rollups are empty, building them from existing logs");
+            backfill();
+        } catch (Exception e) {
+            logger.warn("Wellness rollup backfill failed: {}", e.getMessage());
+        }
+    }
+
+    // Rebuilds every rollup from the raw logs in one server-side aggregation. A log written while this
+    // runs may be counted by both paths for its day; re-running the backfill settles it.
+    public void backfill() {
+        long started = System.currentTimeMillis();
+        // LocalDate is stored as midnight in the server's zone, which is the day we want to label
+        String zone = ZoneId.systemDefault().getId();
+        // A bare "$" would read as a field path, hence the $literal
+        Document moodKey = replaceAll(replaceAll("$mood", "."), new Document("$literal", "$"));
+        Document moodOrNull = new Document("$cond", Arrays.asList(isString("$mood"), moodKey, null));
+        Document hasEnergy = new Document("$cond", List.of(new Document("$isNumber", "$energy"), 1, 0));
+
+        // Logs without a usable mood still count, they just stay out of the histogram
+        Document usableMood = new Document("$and", List.of(isString("$$this.k"),
+                new Document("$ne", List.of(new Document("$trim", new Document("input", "$$this.k")), ""))));
+        Document day = new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                .append("date", "$_id.d").append("timezone", zone));
+
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("userId", new Document("$type", "string"))
+                        .append("date", new Document("$type", "date"))),
+                // Per user, day and mood first, so the histogram can be built from the counts
+                new Document("$group", new Document("_id", new Document("u", "$userId").append("d", "$date").append("m", moodOrNull))
+                        .append("n", new Document("$sum", 1))
+                        .append("ec", new Document("$sum", hasEnergy))
+                        .append("es", new Document("$sum", "$energy"))
+                        .append("emin", new Document("$min", "$energy"))
+                        .append("emax", new Document("$max", "$energy"))),
+                new Document("$group", new Document("_id", new Document("u", "$_id.u").append("d", "$_id.d"))
+                        .append("count", new Document("$sum", "$n"))
+                        .append("energyCount", new Document("$sum", "$ec"))
+                        .append("energySum", new Document("$sum", "$es"))
+                        .append("energyMin", new Document("$min", "$emin"))
+                        .append("energyMax", new Document("$max", "$emax"))
+                        .append("moods", new Document("$push", new Document("k", "$_id.m").append("v", "$n")))),
+                new Document("$project", new Document("_id", new Document("$concat", List.of("$_id.u", "@", day)))
+                        .append("userId", "$_id.u")
+                        .append("date", "$_id.d")
+                        .append("count", 1)
+                        .append("energyCount", 1)
+                        .append("energySum", 1)
+                        .append("energyMin", 1)
+                        .append("energyMax", 1)
+                        .append("moods", new Document("$arrayToObject",
+                                new Document("$filter", new Document("input", "$moods").append("cond", usableMood))))
+                        .append("updatedAt", "$$NOW")),
+                new Document("$merge", new Document("into", mongoTemplate.getCollectionName(WellnessDailyRollup.class))
+                        .append("on", "_id")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert"))
+        );
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(WellnessLog.class))
+                .aggregate(pipeline).allowDiskUse(true).toCollection();
+        logger.info("Wellness rollups rebuilt in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private static Document replaceAll(Object input, Object find) {
+        return new Document("$replaceAll", new Document("input", input).append("find", find).append("replacement", "_"));
+    }
+
+    private static Document isString(String field) {
+        return new Document("$eq", List.of(new Document("$type", field), "string"));
+    }
+}
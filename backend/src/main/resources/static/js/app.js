@@ -213,15 +213,18 @@ async function handleRegister(e) {
 }
 
 function logout() {
+    if (authToken) {
+        fetch(`${API_BASE}/auth/logout`, { method: 'POST', headers: { 'X-Auth-Token': authToken } }).catch(() => {});
+    }
     authToken = null;
     localStorage.removeItem('authToken');
     localStorage.removeItem('userRole');
     localStorage.removeItem('username');
     
-    // Clear notification polling
-    if (notificationPollInterval) {
-        clearInterval(notificationPollInterval);
-        notificationPollInterval = null;
+    // Close the notification stream
+    if (notificationStream) {
+        notificationStream.close();
+        notificationStream = null;
     }
     
     // Stop any ringing audio
@@ -261,7 +264,7 @@ function switchView(viewName) {
     if (viewName === 'settings') loadProfileSettings();
 }
 
-let notificationPollInterval = null;
+let notificationStream = null;
 
 async function loadDashboardData() {
     try {
@@ -303,10 +306,8 @@ async function loadDashboardData() {
         // Load notifications
         loadNotifications();
         
-        // Start polling for new notifications every 10 seconds (only once)
-        if (!notificationPollInterval) {
-            notificationPollInterval = setInterval(loadNotifications, 10000);
-        }
+        // Listen for pushed notifications (only once)
+        startNotificationStream();
         
     } catch (error) {
         console.error('Error loading dashboard:', error);
@@ -492,6 +493,21 @@ async function loadNotifications() {
     }
 }
 
+// New notifications are pushed over server-sent events; EventSource reconnects by itself, and
+// reloading the list whenever the stream (re)opens picks up anything sent while it was down
+function startNotificationStream() {
+    if (notificationStream || !authToken) return;
+    notificationStream = new EventSource(`${API_BASE}/notifications/stream?token=${encodeURIComponent(authToken)}`);
+    notificationStream.onopen = () => loadNotifications();
+    notificationStream.addEventListener('notification', (event) => {
+        const n = JSON.parse(event.data);
+        if (allNotificationsApp.some(old => old.id === n.id)) return;
+        allNotificationsApp = [n, ...allNotificationsApp];
+        updateNotifBadgeApp();
+        if (n.type === 'RING' && !n.read) showRingAlert(n);
+    });
+}
+
 // Medications (dose events)
 async function loadDoseEvents() {
     console.log('[loadDoseEvents] Starting to load medications...');
@@ -1116,48 +1116,160 @@ function sendMessageToSelected() {
     }).catch(() => toast('Error sending message', 'error'));
 }
 
+// The open thread: the newest page first, older pages prepended as the user scrolls back
+let openThread = null;
+
+async function fetchThreadPage(patientId, before) {
+    const params = new URLSearchParams({ patientId });
+    if (before) params.set('before', before);
+    const res = await fetch(`${API_BASE}/caretaker/messages/thread?${params}`, { headers: { 'X-Auth-Token': authToken } });
+    if (!res.ok) return null;
+    return res.json();
+}
+
+function renderThreadMessages(messages, patientName) {
+    return messages.map(m => `
+        <div class="message ${m.sender === 'caretaker' ? 'sent' : 'received'}" data-id="${m.id}">
+            <strong>${m.sender === 'caretaker' ? 'You' : patientName}</strong>
+            <p>${m.content}</p>
+            <small>${m.createdAt || ''}</small>
+        </div>`).join('');
+}
+
 async function openConversation(patientId, patientName) {
     try {
-        const res = await fetch(`${API_BASE}/caretaker/messages/thread?patientId=${encodeURIComponent(patientId)}`, { headers: { 'X-Auth-Token': authToken } });
-        if (!res.ok) return;
-        const thread = await res.json();
+        const page = await fetchThreadPage(patientId, null);
+        if (!page) return;
         const main = document.getElementById('messages-main');
         if (!main) return;
+        openThread = { patientId, patientName, before: page.before, hasMore: page.hasMore, loading: false };
         main.innerHTML = `
             <div class="conversation-header">
                 <h3>💬 ${patientName}</h3>
                 <button class="btn-secondary" onclick="callPatient('${patientName}')">📞 Call</button>
             </div>
-            <div class="messages-thread">
-                ${thread.map(m => `
-                    <div class="message ${m.sender === 'caretaker' ? 'sent' : 'received'}">
-                        <strong>${m.sender === 'caretaker' ? 'You' : patientName}</strong>
-                        <p>${m.content}</p>
-                        <small>${m.createdAt || ''}</small>
-                    </div>`).join('')}
+            <div class="messages-thread" id="messages-thread" style="max-height:60vh; overflow-y:auto;" onscroll="if (this.scrollTop === 0) loadOlderMessages()">
+                <button class="btn-secondary" id="load-older-btn" onclick="loadOlderMessages()" style="display:${page.hasMore ? 'block' : 'none'}; margin:0 auto 12px;">Load older messages</button>
+                <div id="thread-messages">${renderThreadMessages(page.messages || [], patientName)}</div>
             </div>
             <div class="message-composer">
                 <input type="text" id="message-input" placeholder="Type your message..." onkeypress="if(event.key==='Enter') sendMessage('${patientId}', '${patientName}')">
                 <button class="btn-primary" onclick="sendMessage('${patientId}', '${patientName}')">Send</button>
             </div>`;
+        const thread = document.getElementById('messages-thread');
+        thread.scrollTop = thread.scrollHeight;
+        markConversationRead(patientId);
+        const patient = (allPatients || []).find(p => p.id === patientId);
+        if (patient && patient.caretakerId) followConversation(patient.caretakerId, patientId);
     } catch (e) { console.error('openConversation error', e); }
 }
 
-async function sendMessage(patientId, patientName) {
-    const input = document.getElementById('message-input');
-    if (!input || !input.value.trim()) return;
-    const message = input.value.trim();
+// Clears this side's unread count once the thread is on screen
+async function markConversationRead(patientId) {
     try {
-        const res = await fetch(`${API_BASE}/caretaker/messages/send`, {
+        await fetch(`${API_BASE}/caretaker/messages/read?patientId=${encodeURIComponent(patientId)}`, {
             method: 'POST',
-            headers: { 'Content-Type': 'application/json', 'X-Auth-Token': authToken },
-            body: JSON.stringify({ patientId, patientName, content: message, sender: 'caretaker' })
+            headers: { 'X-Auth-Token': authToken }
         });
-        if (res.ok) {
-            input.value = '';
-            openConversation(patientId, patientName);
-        }
-    } catch (e) { console.error('sendMessage error', e); }
+    } catch (e) { console.error('markConversationRead error', e); }
+}
+
+async function loadOlderMessages() {
+    const t = openThread;
+    if (!t || !t.hasMore || t.loading) return;
+    t.loading = true;
+    try {
+        const page = await fetchThreadPage(t.patientId, t.before);
+        if (!page || openThread !== t) return;
+        const thread = document.getElementById('messages-thread');
+        const list = document.getElementById('thread-messages');
+        if (!thread || !list) return;
+        // Keep the message the user was looking at in place while the older page goes in above it
+        const fromBottom = thread.scrollHeight - thread.scrollTop;
+        list.insertAdjacentHTML('afterbegin', renderThreadMessages(page.messages || [], t.patientName));
+        thread.scrollTop = thread.scrollHeight - fromBottom;
+        t.before = page.before;
+        t.hasMore = page.hasMore;
+        if (!t.hasMore) document.getElementById('load-older-btn').style.display = 'none';
+    } catch (e) {
+        console.error('loadOlderMessages error', e);
+    } finally {
+        t.loading = false;
+    }
+}
+
+// ========== LIVE CONVERSATION (STOMP over /ws) ==========
+// Just enough STOMP 1.2 on the native WebSocket to follow the open thread: subscribe to its topic and
+// append messages as they arrive. After a reconnect the thread is reloaded, which covers anything sent
+// while the socket was down.
+
+let stomp = null;
+let liveTopic = null;
+let stompRetryMs = 1000;
+
+function stompFrame(command, headers, body = '') {
+    return [command, ...Object.entries(headers).map(([k, v]) => `${k}:${v}`)].join('\n') + '\n\n' + body + '\0';
+}
+
+function followConversation(caretakerId, patientId) {
+    liveTopic = `/topic/conversations.${caretakerId}.${patientId}`;
+    if (!stomp) connectConversationSocket(false);
+    else subscribeLiveTopic();
+}
+
+function connectConversationSocket(reconnecting) {
+    const protocol = location.protocol === 'https:' ? 'wss' : 'ws';
+    const socket = new WebSocket(`${protocol}://${location.host}/ws`);
+    stomp = { socket, connected: false, subscribed: null, reconnecting };
+    socket.onopen = () => socket.send(stompFrame('CONNECT', {
+        'accept-version': '1.2', host: location.host, 'heart-beat': '0,25000', 'X-Auth-Token': authToken
+    }));
+    // Frames end with NUL; bare newlines between them are the server's heartbeats
+    socket.onmessage = (e) => String(e.data).split('\0').forEach(frame => handleStompFrame(frame.replace(/^\n+/, '')));
+    socket.onclose = () => {
+        const wasConnected = stomp && stomp.socket === socket && stomp.connected;
+        if (stomp && stomp.socket === socket) stomp = null;
+        if (!liveTopic) return;
+        stompRetryMs = wasConnected ? 1000 : Math.min(stompRetryMs * 2, 30000);
+        setTimeout(() => { if (!stomp && liveTopic) connectConversationSocket(true); }, stompRetryMs);
+    };
+}
+
+function handleStompFrame(frame) {
+    if (!frame || !stomp) return;
+    const split = frame.indexOf('\n\n');
+    const command = frame.slice(0, frame.indexOf('\n') < 0 ? frame.length : frame.indexOf('\n'));
+    const body = split < 0 ? '' : frame.slice(split + 2);
+    if (command === 'CONNECTED') {
+        stomp.connected = true;
+        stompRetryMs = 1000;
+        subscribeLiveTopic();
+        if (stomp.reconnecting && openThread) openConversation(openThread.patientId, openThread.patientName);
+    } else if (command === 'MESSAGE') {
+        try { onConversationEvent(JSON.parse(body)); } catch (e) { console.error('conversation event error', e); }
+    } else if (command === 'ERROR') {
+        console.error('STOMP error', body || frame);
+    }
+}
+
+function subscribeLiveTopic() {
+    if (!stomp || !stomp.connected || !liveTopic || stomp.subscribed === liveTopic) return;
+    if (stomp.subscribed) stomp.socket.send(stompFrame('UNSUBSCRIBE', { id: 'thread' }));
+    stomp.socket.send(stompFrame('SUBSCRIBE', { id: 'thread', destination: liveTopic }));
+    stomp.subscribed = liveTopic;
+}
+
+function onConversationEvent(event) {
+    if (!event || event.type !== 'message' || !event.message || !openThread) return;
+    const m = event.message;
+    if (m.patientId !== openThread.patientId) return;
+    const thread = document.getElementById('messages-thread');
+    const list = document.getElementById('thread-messages');
+    if (!thread || !list || list.querySelector(`[data-id="${m.id}"]`)) return;
+    const atBottom = thread.scrollHeight - thread.scrollTop - thread.clientHeight < 40;
+    list.insertAdjacentHTML('beforeend', renderThreadMessages([m], openThread.patientName));
+    if (atBottom) thread.scrollTop = thread.scrollHeight;
+    if (m.sender !== 'caretaker') markConversationRead(m.patientId);
 }
 
 // ========== REPORT CSV EXPORT ==========
@@ -1175,6 +1287,11 @@ function exportCSV(filename, rows) {
 
 async function logout() {
     if (await confirmModal('Are you sure you want to logout?')) {
+        const token = localStorage.getItem('authToken');
+        if (token) {
+            // keepalive lets the request finish after we navigate away
+            fetch(`${API_BASE}/auth/logout`, { method: 'POST', headers: { 'X-Auth-Token': token }, keepalive: true }).catch(() => {});
+        }
         localStorage.removeItem('authToken');
         localStorage.removeItem('username');
         localStorage.removeItem('role');
@@ -1353,34 +1470,6 @@ function loadMessages() { loadConversations(); }
 
 function composeMessage() { openMsgModal(); }
 
-function openConversation(patientId, patientName) {
-    const messagesMain = document.getElementById('messages-main');
-    if (!messagesMain) return;
-    
-    messagesMain.innerHTML = `
-        <div class="conversation-header">
-            <h3>💬 ${patientName}</h3>
-            <button class="btn-secondary" onclick="callPatient('${patientName}')">📞 Call</button>
-        </div>
-        <div class="messages-thread">
-            <div class="message received">
-                <strong>${patientName}</strong>
-                <p>Hello, I have a question about my medication schedule.</p>
-                <small>2 hours ago</small>
-            </div>
-            <div class="message sent">
-                <strong>You</strong>
-                <p>Hi! I'd be happy to help. What would you like to know?</p>
-                <small>1 hour ago</small>
-            </div>
-        </div>
-        <div class="message-composer">
-            <input type="text" id="message-input" placeholder="Type your message..." onkeypress="if(event.key==='Enter') sendMessage('${patientId}', '${patientName}')">
-            <button class="btn-primary" onclick="sendMessage('${patientId}', '${patientName}')">Send</button>
-        </div>
-    `;
-}
-
 function sendMessage(patientId, patientName) {
     const input = document.getElementById('message-input');
     if (!input || !input.value.trim()) return;
@@ -1392,9 +1481,9 @@ function sendMessage(patientId, patientName) {
         body: JSON.stringify({ patientId, patientName, content: message, sender: 'caretaker' })
     }).then(res => {
         if (res.ok) {
+            // The live subscription appends the sent message to the open thread
             input.value = '';
             toast(`Message sent to ${patientName}`);
-            openConversation(patientId, patientName);
         } else {
             toast('Failed to send message', 'error');
         }
@@ -106,10 +106,8 @@ async function loadDashboard() {
         loadProfile()
     ]);
     
-    // Poll for new notifications every 10 seconds to catch ring alerts
-    setInterval(() => {
-        loadNotifications();
-    }, 10000);
+    // Ring alerts and other new notifications are pushed over the stream
+    startNotificationStream();
 }
 
 async function refreshDashboard() {
@@ -486,6 +484,23 @@ async function loadNotifications() {
     }
 }
 
+// New notifications are pushed over server-sent events; EventSource reconnects by itself, and
+// reloading the list whenever the stream (re)opens picks up anything sent while it was down
+let notificationStream = null;
+
+function startNotificationStream() {
+    if (notificationStream || !authToken) return;
+    notificationStream = new EventSource(`${API_BASE}/notifications/stream?token=${encodeURIComponent(authToken)}`);
+    notificationStream.onopen = () => loadNotifications();
+    notificationStream.addEventListener('notification', (event) => {
+        const n = JSON.parse(event.data);
+        if (allNotifications.some(old => old.id === n.id)) return;
+        allNotifications = [n, ...allNotifications];
+        updateNotifBadge();
+        if (n.type === 'RING' && !n.read) showRingAlert(n);
+    });
+}
+
 // ========== AI INSIGHTS ==========
 
 async function loadAIInsights() {
@@ -767,6 +782,12 @@ function showSection(sectionName) {
 
 function logout() {
     if (confirm('Are you sure you want to logout?')) {
+        const token = localStorage.getItem('authToken');
+        if (notificationStream) notificationStream.close();
+        if (token) {
+            // keepalive lets the request finish after we navigate away
+            fetch(`${API_BASE}/auth/logout`, { method: 'POST', headers: { 'X-Auth-Token': token }, keepalive: true }).catch(() => {});
+        }
         localStorage.removeItem('authToken');
         localStorage.removeItem('username');
         localStorage.removeItem('role');
@@ -0,0 +1,32 @@
+package com.medimate.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DoseScheduleTest {
+
+    @Test
+    void compilesSortedDistinctMinutes() {
+        assertArrayEquals(new int[]{8 * 60, 20 * 60 + 30}, DoseSchedule.compile("20:30, 8:00, 08:00"));
+    }
+
+    @Test
+    void acceptsValidSeconds() {
+        assertArrayEquals(new int[]{8 * 60}, DoseSchedule.compile("08:00:00"));
+        assertArrayEquals(new int[]{8 * 60}, DoseSchedule.compile("08:00:59"));
+    }
+
+    @Test
+    void rejectsMalformedSeconds() {
+        for (String bad : new String[]{"08:00:xx", "08:00:60", "08:00:5a", "08:00:"}) {
+            assertThrows(IllegalArgumentException.class, () -> DoseSchedule.compile(bad), bad);
+        }
+    }
+
+    @Test
+    void legacyParseSkipsInvalidEntries() {
+        assertArrayEquals(new int[]{20 * 60}, DoseSchedule.forLegacy("08:00:xx, 20:00"));
+    }
+}
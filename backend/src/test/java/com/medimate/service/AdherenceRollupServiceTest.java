@@ -0,0 +1,87 @@
+package com.medimate.service;
+
+import com.medimate.model.AdherenceDailyRollup;
+import com.medimate.model.DoseEvent;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdherenceRollupServiceTest {
+    private static final LocalDateTime MORNING = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations ops = mock(BulkOperations.class);
+    private final AdherenceRollupService rollups = new AdherenceRollupService(mongoTemplate);
+
+    private static DoseEvent dose(String medicationId, LocalDateTime dueAt) {
+        DoseEvent d = new DoseEvent();
+        d.setUserId("u1");
+        d.setMedicationId(medicationId);
+        d.setMedName("Aspirin");
+        d.setDueAt(dueAt);
+        return d;
+    }
+
+    @BeforeEach
+    void stubBulkOps() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AdherenceDailyRollup.class)).thenReturn(ops);
+    }
+
+    private Document inc(Update u) {
+        return (Document) u.getUpdateObject().get("$inc");
+    }
+
+    @Test
+    void dosesSharingAKeyMoveTheirCombinedCount() {
+        rollups.apply(List.of(dose("m1", MORNING), dose("m1", MORNING.plusHours(12))), "PENDING", "MISSED");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(ops, times(1)).upsert(query.capture(), update.capture());
+        assertEquals(AdherenceDailyRollup.keyFor("u1", "m1", LocalDate.of(2026, 3, 2)),
+                query.getValue().getQueryObject().get("_id"));
+        assertEquals(new Document("missed", 2), inc(update.getValue()));
+        verify(ops).execute();
+    }
+
+    @Test
+    void transitionsBetweenCountersMoveTheWholeGroup() {
+        rollups.apply(List.of(dose("m1", MORNING), dose("m1", MORNING), dose("m1", MORNING)), "TAKEN", "SKIPPED");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(ops, times(1)).upsert(any(Query.class), update.capture());
+        assertEquals(new Document("taken", -3).append("skipped", 3), inc(update.getValue()));
+    }
+
+    @Test
+    void differentKeysGetTheirOwnUpserts() {
+        rollups.apply(List.of(dose("m1", MORNING), dose("m2", MORNING), dose("m1", MORNING.plusDays(1))), "PENDING", "TAKEN");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(ops, times(3)).upsert(any(Query.class), update.capture());
+        for (Update u : update.getAllValues()) assertEquals(new Document("taken", 1), inc(u));
+    }
+
+    @Test
+    void sameCounterIsANoOp() {
+        rollups.apply(List.of(dose("m1", MORNING)), "PENDING", "SCHEDULED");
+        verify(ops, never()).execute();
+    }
+}
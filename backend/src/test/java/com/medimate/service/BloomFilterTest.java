@@ -0,0 +1,35 @@
+package com.medimate.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedKey() {
+        BloomFilter filter = new BloomFilter(1000, 0.001);
+        for (int i = 0; i < 1000; i++) filter.add("token-" + i);
+        for (int i = 0; i < 1000; i++) assertTrue(filter.mightContain("token-" + i));
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        assertFalse(filter.mightContain("token-0"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void falsePositivesStayNearTheSizedRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.add("revoked-" + i);
+        int hits = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("live-" + i)) hits++;
+        }
+        // 1% expected; allow generous slack so the test isn't flaky
+        assertTrue(hits < 2_000, "false positives: " + hits);
+    }
+}
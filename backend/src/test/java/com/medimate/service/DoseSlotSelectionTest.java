@@ -0,0 +1,38 @@
+package com.medimate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DoseSlotSelectionTest {
+    private static final int[] SLOTS = {0, 8 * 60, 20 * 60};
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 2);
+
+    @Test
+    void dailyRunTakesEverySlotIncludingMidnight() {
+        assertEquals(0, DoseLifecycleEngine.firstSlot(SLOTS, TODAY, TODAY.atStartOfDay(), false));
+    }
+
+    @Test
+    void catchUpRunKeepsSlotsThatHaveAlreadyPassed() {
+        assertEquals(0, DoseLifecycleEngine.firstSlot(SLOTS, TODAY, TODAY.atTime(14, 30), false));
+        assertEquals(0, DoseLifecycleEngine.firstSlot(SLOTS, TODAY.minusDays(1), TODAY.atTime(14, 30), false));
+    }
+
+    @Test
+    void seedingANewMedicationSkipsPastAndCurrentMinuteSlots() {
+        LocalDateTime now = TODAY.atTime(8, 0, 30);
+        assertEquals(2, DoseLifecycleEngine.firstSlot(SLOTS, TODAY, now, true));
+        assertEquals(1, DoseLifecycleEngine.firstSlot(SLOTS, TODAY, TODAY.atTime(7, 59), true));
+        assertEquals(SLOTS.length, DoseLifecycleEngine.firstSlot(SLOTS, TODAY, TODAY.atTime(20, 0), true));
+    }
+
+    @Test
+    void seedingOnlyAppliesToToday() {
+        assertEquals(SLOTS.length, DoseLifecycleEngine.firstSlot(SLOTS, TODAY.minusDays(1), TODAY.atTime(9, 0), true));
+        assertEquals(0, DoseLifecycleEngine.firstSlot(SLOTS, TODAY.plusDays(1), TODAY.atTime(9, 0), true));
+    }
+}
@@ -0,0 +1,33 @@
+package com.medimate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsThroughItsStringForm() {
+        KeysetCursor cursor = KeysetCursor.of(LocalDateTime.of(2026, 3, 2, 8, 15, 30, 250_000_000), "65f0c0ffee");
+        assertEquals(cursor.toString(), KeysetCursor.parse(cursor.toString(), "since").toString());
+    }
+
+    @Test
+    void emptyAndZeroMeanNoPosition() {
+        assertNull(KeysetCursor.parse(null, "since"));
+        assertNull(KeysetCursor.parse("", "since"));
+        assertNull(KeysetCursor.parse("0", "since"));
+    }
+
+    @Test
+    void rejectsMalformedCursorsNamingTheParameter() {
+        for (String bad : new String[]{"123", "_abc", "123_", "abc_def", "1700000000000,abc"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> KeysetCursor.parse(bad, "before"));
+            assertEquals("Invalid before cursor", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.medimate.service;
+
+import com.medimate.model.Notification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NotificationOutboxTest {
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final NotificationHub hub = mock(NotificationHub.class);
+    // Writer thread never started: shutdown() writes whatever is queued on the calling thread
+    private final NotificationOutbox outbox = new NotificationOutbox(mongoTemplate, hub, new SimpleMeterRegistry(), 10, 10, 0);
+
+    private static Notification notification(String id) {
+        Notification n = new Notification();
+        n.setId(id);
+        n.setUserId("caretaker-1");
+        return n;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void callsBackOnceTheNotificationIsStored() {
+        when(mongoTemplate.insertAll(anyCollection())).thenAnswer(inv -> new ArrayList<>((Collection<Notification>) inv.getArgument(0)));
+        List<String> written = new ArrayList<>();
+        outbox.offer(notification("n1"), () -> written.add("n1"));
+        outbox.offer(notification("n2"));
+        assertEquals(List.of(), written);
+
+        outbox.shutdown();
+        assertEquals(List.of("n1"), written);
+    }
+
+    @Test
+    void neverCallsBackForADroppedNotification() {
+        when(mongoTemplate.insertAll(anyCollection())).thenThrow(new IllegalStateException("down"));
+        when(mongoTemplate.save(any(Notification.class))).thenThrow(new IllegalStateException("down"));
+        List<String> written = new ArrayList<>();
+        outbox.offer(notification("n1"), () -> written.add("n1"));
+
+        outbox.shutdown();
+        assertEquals(List.of(), written);
+    }
+}
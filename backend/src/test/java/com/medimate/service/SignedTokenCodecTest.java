@@ -0,0 +1,67 @@
+package com.medimate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SignedTokenCodecTest {
+    private static final long NOW = 1_700_000_000L;
+
+    private final SignedTokenCodec codec = new SignedTokenCodec("test-key-0123456789".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void roundTripsItsClaims() {
+        SignedTokenCodec.Claims claims = codec.verify(codec.issue("user-1", "caretaker", NOW + 60, "tid-1"), NOW);
+        assertNotNull(claims);
+        assertEquals("user-1", claims.getUserId());
+        assertEquals("caretaker", claims.getRole());
+        assertEquals(NOW + 60, claims.getExpiresAt());
+        assertEquals("tid-1", claims.getTokenId());
+    }
+
+    @Test
+    void rejectsATamperedSignature() {
+        String token = codec.issue("user-1", "elder", NOW + 60, "tid-1");
+        int dot = token.indexOf('.');
+        byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        signature[0] ^= 1;
+        String tampered = token.substring(0, dot + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        assertNull(codec.verify(tampered, NOW));
+    }
+
+    @Test
+    void rejectsATamperedPayload() {
+        String token = codec.issue("user-1", "elder", NOW + 60, "tid-1");
+        String signature = token.substring(token.indexOf('.'));
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("v1|user-2|elder|" + (NOW + 60) + "|tid-1").getBytes(StandardCharsets.UTF_8));
+        assertNull(codec.verify(forged + signature, NOW));
+    }
+
+    @Test
+    void rejectsATokenSignedWithAnotherKey() {
+        SignedTokenCodec other = new SignedTokenCodec("another-key".getBytes(StandardCharsets.UTF_8));
+        assertNull(codec.verify(other.issue("user-1", "elder", NOW + 60, "tid-1"), NOW));
+    }
+
+    @Test
+    void rejectsAnExpiredToken() {
+        String token = codec.issue("user-1", "elder", NOW, "tid-1");
+        assertNotNull(codec.verify(token, NOW - 1));
+        assertNull(codec.verify(token, NOW));
+        assertNull(codec.verify(token, NOW + 3600));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertNull(codec.verify("", NOW));
+        assertNull(codec.verify("no-dot", NOW));
+        assertNull(codec.verify("a.b.c", NOW));
+        assertNull(codec.verify("!!!.???", NOW));
+    }
+}
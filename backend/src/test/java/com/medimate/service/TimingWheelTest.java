@@ -0,0 +1,87 @@
+package com.medimate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+    private static final long T0 = 10 * 86_400_000L + 12_000; // on a tick, but off every level boundary
+
+    // 1s ticks: 60 seconds, 60 minutes, 24 hours
+    private static TimingWheel<String> wheel() {
+        return new TimingWheel<>(1000, new int[]{60, 60, 24}, T0);
+    }
+
+    @Test
+    void firesOnTheTickOfItsDeadline() {
+        TimingWheel<String> w = wheel();
+        w.schedule("a", T0 + 5_000);
+        assertTrue(w.advance(T0 + 4_999).isEmpty());
+        assertEquals(List.of("a"), w.advance(T0 + 5_000));
+        assertEquals(0, w.size());
+    }
+
+    @Test
+    void neverFiresBeforeAPartialTickDeadline() {
+        TimingWheel<String> w = wheel();
+        w.schedule("a", T0 + 5_001);
+        assertTrue(w.advance(T0 + 5_000).isEmpty());
+        assertEquals(List.of("a"), w.advance(T0 + 6_000));
+    }
+
+    @Test
+    void cascadesFromHigherLevels() {
+        TimingWheel<String> w = wheel();
+        long minutesLevel = T0 + 2 * 60_000L + 7_000; // past level 0's minute, so it starts one level up
+        long hoursLevel = T0 + 90 * 60_000L + 7_000;  // past level 1's hour, so it starts in the top level
+        w.schedule("hours", hoursLevel);
+        w.schedule("minutes", minutesLevel);
+
+        assertTrue(w.advance(minutesLevel - 1_000).isEmpty());
+        assertEquals(List.of("minutes"), w.advance(minutesLevel));
+        assertTrue(w.advance(hoursLevel - 1_000).isEmpty());
+        assertEquals(List.of("hours"), w.advance(hoursLevel));
+    }
+
+    @Test
+    void keepsEntriesBeyondTheTopLevelUntilTheirDeadline() {
+        TimingWheel<String> w = wheel();
+        long deadline = T0 + 30L * 3_600_000; // past the 24-hour range of the wheel
+        w.schedule("far", deadline);
+        assertTrue(w.advance(deadline - 1_000).isEmpty());
+        assertEquals(List.of("far"), w.advance(deadline));
+    }
+
+    @Test
+    void cancelledEntriesDoNotFire() {
+        TimingWheel<String> w = wheel();
+        w.schedule("a", T0 + 3_000);
+        w.schedule("b", T0 + 3_000);
+        assertTrue(w.cancel("a"));
+        assertFalse(w.cancel("a"));
+        assertEquals(List.of("b"), w.advance(T0 + 10_000));
+        assertEquals(0, w.size());
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierDeadline() {
+        TimingWheel<String> w = wheel();
+        w.schedule("a", T0 + 3_000);
+        w.schedule("a", T0 + 8_000);
+        assertTrue(w.advance(T0 + 5_000).isEmpty());
+        assertEquals(List.of("a"), w.advance(T0 + 8_000));
+        assertTrue(w.advance(T0 + 20_000).isEmpty());
+    }
+
+    @Test
+    void overdueEntriesFireOnTheNextAdvance() {
+        TimingWheel<String> w = wheel();
+        w.advance(T0 + 10_000);
+        w.schedule("late", T0 + 2_000);
+        assertEquals(List.of("late"), w.advance(T0 + 10_000));
+    }
+}
@@ -0,0 +1,44 @@
+package com.medimate.service;
+
+import com.medimate.model.RevokedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationListTest {
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TokenRevocationList revocations = new TokenRevocationList(mongoTemplate, new SimpleMeterRegistry(), 1000);
+
+    @Test
+    void rejectsARevokedToken() {
+        revocations.revoke("tid-1", Instant.now().plusSeconds(3600));
+        when(mongoTemplate.exists(any(Query.class), eq(RevokedToken.class))).thenReturn(true);
+        assertTrue(revocations.isRevoked("tid-1"));
+    }
+
+    @Test
+    void answersUnrevokedTokensWithoutALookup() {
+        assertFalse(revocations.isRevoked("tid-2"));
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(RevokedToken.class));
+    }
+
+    @Test
+    void confirmsFilterHitsAgainstTheCollection() {
+        revocations.revoke("tid-3", Instant.now().plusSeconds(3600));
+        // A filter hit the collection doesn't back up is a false positive, not a revocation
+        when(mongoTemplate.exists(any(Query.class), eq(RevokedToken.class))).thenReturn(false);
+        assertFalse(revocations.isRevoked("tid-3"));
+    }
+}